@@ -0,0 +1,94 @@
+package org.sims.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.sims.galaxy.GravityForce;
+import org.sims.models.*;
+import org.sims.oscillator.OscillatorForce;
+
+/**
+ * Cost of one force evaluation, through both the map and buffer APIs.
+ *
+ * Run with {@code mvn -Pbench compile exec:exec}, results
+ * (including the GC profiler allocation rates) are
+ * written to target/jmh-result.json.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class ForceBenchmark {
+    @State(Scope.Benchmark)
+    public static class Gravity {
+        @Param({ "500", "2000", "8000" })
+        public int N;
+
+        @Param({ "1", "4", "32" })
+        public int threads;
+
+        @Param({ "false", "true" })
+        public boolean simd;
+
+        public List<Particle> particles;
+        public ParticleBuffer buffer;
+        public GravityForce force;
+
+        @Setup
+        public void setup() {
+            particles = Particle.spawnGalaxy(N, Vector3.ZERO, 4.0, 1.0, 0.01);
+            buffer = ParticleBuffer.of(particles);
+            force = new GravityForce(threads, simd);
+        }
+
+        @TearDown
+        public void close() {
+            force.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Oscillator {
+        @Param({ "500", "2000", "8000" })
+        public int N;
+
+        public List<Particle> particles;
+        public ParticleBuffer buffer;
+        public OscillatorForce force;
+
+        @Setup
+        public void setup() {
+            particles = Particle.spawnGalaxy(N, Vector3.ZERO, 1.0, 1.0, 1.0);
+            buffer = ParticleBuffer.of(particles);
+            force = new OscillatorForce(1e4, 100, 1);
+        }
+    }
+
+    @Benchmark
+    public Map<Particle, Vector3> gravity(final Gravity state) {
+        return state.force.apply(state.particles);
+    }
+
+    @Benchmark
+    public void gravityBuffer(final Gravity state, final Blackhole bh) {
+        final var b = state.buffer;
+        state.force.apply(b, b.ax, b.ay, b.az);
+        bh.consume(b.ax);
+    }
+
+    @Benchmark
+    public Map<Particle, Vector3> oscillator(final Oscillator state) {
+        return state.force.apply(state.particles);
+    }
+
+    @Benchmark
+    public void oscillatorBuffer(final Oscillator state, final Blackhole bh) {
+        final var b = state.buffer;
+        state.force.apply(b, b.ax, b.ay, b.az);
+        bh.consume(b.ax);
+    }
+}
@@ -0,0 +1,85 @@
+package org.sims.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.sims.galaxy.GravityForce;
+import org.sims.integrals.*;
+import org.sims.interfaces.*;
+import org.sims.models.*;
+
+/**
+ * Cost of one galaxy integration step, force included,
+ * through both the collection and buffer APIs.
+ *
+ * The state is rebuilt on every iteration so
+ * all of them measure the same galaxy, the force
+ * and its workers are kept for the whole trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class IntegratorBenchmark {
+    private static final double DT = 1e-3;
+
+    @Param({ "500", "2000" })
+    public int N;
+
+    @Param({ "verlet", "velocityverlet", "beeman", "gearposition" })
+    public String integrator;
+
+    @Param({ "1", "4", "32" })
+    public int threads;
+
+    private GravityForce force;
+    private List<Particle> initial;
+    private List<Particle> particles;
+    private ParticleBuffer buffer;
+    private Integrator<Particle> stepper;
+
+    @Setup(Level.Trial)
+    public void galaxy() {
+        initial = Particle.spawnGalaxy(N, Vector3.ZERO, 4.0, 1.0, 0.01);
+        force = new GravityForce(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        force.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        particles = initial;
+
+        stepper = switch (integrator) {
+            case "verlet" -> new Verlet(DT, force);
+            case "velocityverlet" -> new VelocityVerlet(DT, force);
+            case "beeman" -> new BeemanIntegrator(DT, force, particles);
+            case "gearposition" -> {
+                particles.forEach(p -> p.setDerivatives(p.initializeGearGravityDerivatives(p.getPosition(), p.getVelocity())));
+                yield new GearIntegrator(DT, force, GearType.POSITION);
+            }
+            default -> throw new IllegalArgumentException("Unknown integrator: " + integrator);
+        };
+
+        buffer = ParticleBuffer.of(particles);
+        ((BufferIntegrator) stepper).prepare(buffer);
+    }
+
+    @Benchmark
+    public List<Particle> step() {
+        return particles = stepper.step(particles);
+    }
+
+    @Benchmark
+    public ParticleBuffer stepBuffer() {
+        ((BufferIntegrator) stepper).step(buffer);
+        return buffer;
+    }
+}
@@ -1,31 +1,37 @@
 package org.sims;
 
-import org.sims.galaxy.GravityForce;
-import org.sims.integrals.BeemanIntegrator;
-import org.sims.integrals.GearIntegrator;
-import org.sims.integrals.GearType;
-import org.sims.integrals.Verlet;
-import org.sims.interfaces.Integrator;
+import org.sims.galaxy.Diagnostics;
+import org.sims.galaxy.GalaxyEngine;
+import org.sims.galaxy.GalaxySimulation;
+import org.sims.galaxy.HalfMassRadiusStop;
+import org.sims.galaxy.SumForce;
+import org.sims.integrals.BlockHermite;
+import org.sims.interfaces.Force;
+import org.sims.interfaces.PotentialForce;
+import org.sims.interfaces.Step;
+import org.sims.interfaces.StopCondition;
 import org.sims.models.Particle;
-import org.sims.models.Vector3;
-import org.sims.oscillator.OscillatorForce;
+import org.sims.trajectory.Checkpoint;
+import org.sims.trajectory.Output;
+import org.sims.trajectory.SnapshotWriter;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 public class GalaxySimulator {
     public final double dt;
     public final long steps;
     public String integrationMethod;
-    public final GravityForce force;
+    public final Force<Particle> force;
     public final long SAVE_INTERVAL;
+    public final Output output;
     public final long N;
     public final double mass;
     public final double galaxyRadius;
@@ -33,8 +39,46 @@ public class GalaxySimulator {
     public final double velocityMagnitude;
     public List<Particle> particles;
 
+    /**
+     * Steps between checkpoints, 0 disables them
+     */
+    public long checkpointInterval = 0;
+
+    /**
+     * Steps between diagnostics records, 0 disables them
+     */
+    public long diagnosticsInterval = 0;
+
+    /**
+     * Ends the run early, observing every diagnostics record,
+     * so it needs diagnosticsInterval > 0. Its state is checkpointed.
+     */
+    public StopCondition<Diagnostics.Sample> stop = StopCondition.never();
+
+    /**
+     * Whether to continue from the last checkpoint instead of the given particles
+     */
+    public boolean resume = false;
+
+    /**
+     * Accuracy and number of step halvings of the hermite block steps
+     */
+    public double eta = BlockHermite.DEFAULT_ETA;
+    public int blockLevels = BlockHermite.DEFAULT_LEVELS;
+
+    /**
+     * Where to save the setup, steps and checkpoints
+     */
+    public Path outputDir = Path.of(Resources.OUTPUT_PATH);
+
+    /**
+     * Whether to log every saved step, off for concurrent runs
+     */
+    public boolean verbose = true;
+
     public GalaxySimulator(final double dt, final double steps, final String integrationMethod, long SAVE_INTERVAL,
-                           long N, double mass, double galaxyRadius, double particleRadius, double velocityMagnitude, List<Particle> particles) {
+                           long N, double mass, double galaxyRadius, double particleRadius, double velocityMagnitude, List<Particle> particles,
+                           Force<Particle> force, Output output) {
         this.mass = mass;
         this.N = N;
         this.dt = dt;
@@ -43,75 +87,158 @@ public class GalaxySimulator {
         this.particleRadius = particleRadius;
         this.velocityMagnitude = velocityMagnitude;
         this.particles = particles;
-        this.force = new GravityForce();
+        this.force = force;
         this.steps = (long) steps;
         this.SAVE_INTERVAL = SAVE_INTERVAL;
+        this.output = output;
     }
 
 
+    /**
+     * Run the simulation through a {@link GalaxyEngine}.
+     *
+     * The orchestrator saves every SAVE_INTERVAL steps, step 0 included,
+     * and the diagnostics, the stop condition and the checkpoints observe
+     * every step after it, the initial one included.
+     */
     public void simulate() throws IOException {
-        Integrator<Particle> integrator = null;
-        String integratorName = "";
-
-        Resources.init();
-        Resources.prepareDir("steps");
-
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-        Object lock = new Object();
-        switch (integrationMethod) {
-            case "gearposition":
-                integrator = new GearIntegrator(dt, force, GearType.POSITION);
-                integratorName = "Gear5";
-                particles.forEach(particle -> particle.setDerivatives(particle.initializeGearGravityDerivatives(particle.getPosition(), particle.getVelocity())));
-                break;
-            case "gearvelocity":
-                integrator = new GearIntegrator(dt, force, GearType.VELOCITY);
-                integratorName = "Gear5";
-                particles.forEach(particle -> particle.setDerivatives(particle.initializeGearGravityDerivatives(particle.getPosition(), particle.getVelocity())));
-                break;
-            case "verlet":
-                integrator = new Verlet(dt, force);
-                integratorName = "VerletGravity";
-                break;
-            case "beeman":
-                integrator = new BeemanIntegrator(dt, force, particles);
-                integratorName = "BeemanGravity";
-                break;
-            default:
-                System.out.println("Unknown integration method: " + integrationMethod);
-                System.out.println("Available methods: gearposition, gearvelocity, verlet");
-                System.exit(1);
+        Resources.prepareDir(outputDir, resume, "steps");
+
+        final var checkpointPath = outputDir.resolve("checkpoint.bin");
+        final Checkpoint checkpoint = resume ? Checkpoint.load(checkpointPath) : null;
+        if (checkpoint != null) {
+            Particle.restoreSerial(checkpoint.serial());
+            stop.restore(checkpoint.stop());
         }
 
-        File file = new File("sim/setup.txt");
-        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-        writer.write(String.format(Locale.US, "%d %.14f %s\n",
-                steps, dt, integratorName));
-        writer.close();
+        final var simulation = GalaxySimulation.build(steps, dt, particles, force, integrationMethod, eta, blockLevels,
+                checkpoint);
+        final var engine = new GalaxyEngine(simulation, checkpoint);
+        particles = simulation.entities();
 
+        final long start = checkpoint != null ? checkpoint.step() : 0;
 
-        //============ Simulation loop ============
-        for (int i = 0; i < steps; i++) {
-            //1. Compute next step
-            particles = integrator.step(particles); //TODO remove warning
+        final var diagnostics = diagnostics(start);
 
-            //2. Save to file every SAVE_INTERVAL steps
-            if (i % SAVE_INTERVAL == 0) {
+        // Snapshots are copied here and saved by the writer thread, opened last so it never outlives a failed setup
+        final SnapshotWriter snapshots;
+        try {
+            snapshots = output.open(outputDir, particles.size(), dt, SAVE_INTERVAL, simulation.integratorName(), start);
+        } catch (IOException | RuntimeException e) {
+            if (diagnostics != null) {
+                diagnostics.close();
+            }
+            throw e;
+        }
+        final var stopped = new long[] { -1 };
+
+        final Orchestrator.OnStep onStep = i -> {
+            if (i % SAVE_INTERVAL != 0) {
+                return Orchestrator.OnStep.SKIP;
+            }
+            if (verbose) {
                 System.out.println("Saving step " + i + "/" + steps);
-                executor.submit(new SaveIntegrationStep((int) (i / SAVE_INTERVAL), lock, particles));
+            }
+            return i / SAVE_INTERVAL;
+        };
+
+        final StopCondition<Step> observer = step -> {
+            final var i = step.i();
+
+            try {
+                // Energies, center of mass and half-mass radius every diagnosticsInterval steps
+                if (diagnostics != null && diagnostics.due(i)) {
+                    final var sample = engine.buffer() != null
+                            ? diagnostics.record(i, engine.buffer())
+                            : diagnostics.record(i, engine.particles());
+                    if (stop.done(sample)) {
+                        stopped[0] = i;
+                        return true;
+                    }
+                }
+
+                // Checkpoint every checkpointInterval steps, once the previous snapshots are on disk
+                if (checkpointInterval > 0 && i % checkpointInterval == 0 && i > start && i < steps) {
+                    snapshots.flush();
+                    if (diagnostics != null) {
+                        diagnostics.flush();
+                    }
+                    engine.checkpoint().with(stop.state()).save(checkpointPath);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return false;
+        };
+
+        try (engine; snapshots) {
+            new Orchestrator(simulation, engine, outputDir).start(onStep, observer, snapshots);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            if (diagnostics != null) {
+                diagnostics.close();
             }
         }
 
-        executor.shutdown(); // stop accepting new tasks
-        try {
-            if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
-                System.err.println("Some tasks did not finish in time!");
-                executor.shutdownNow();
+        if (stopped[0] >= 0) {
+            if (verbose) {
+                System.out.println("Stop condition met at step " + stopped[0] + "/" + steps);
             }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+            setup(stopped[0], simulation.integratorName()); // so the analysis time axis matches the saved steps
         }
+        if (stop instanceof HalfMassRadiusStop hmr && hmr.crossing().isPresent()) {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputDir.resolve("tstar.txt").toFile()))) {
+                writer.write(String.format(Locale.US, "%.14f\n", hmr.crossing().getAsLong() * dt));
+            }
+        }
+        if (snapshots.dropped() + snapshots.coalesced() > 0) {
+            System.err.println(outputDir + ": skipped " + (snapshots.dropped() + snapshots.coalesced()) + " snapshots, the writer fell behind");
+        }
+    }
 
+    /**
+     * Save the run setup
+     *
+     * @param steps          the steps simulated
+     * @param integratorName the integrator name
+     * @throws IOException if the file cannot be written
+     */
+    private void setup(final long steps, final String integratorName) throws IOException {
+        File file = outputDir.resolve("setup.txt").toFile();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        writer.write(String.format(Locale.US, "%d %.14f %s\n",
+                steps, dt, integratorName));
+        writer.close();
+    }
+
+    /**
+     * Open the diagnostics series, if enabled
+     *
+     * @param from the first step of the run, 0 for a new one
+     * @return the diagnostics, or null if disabled
+     * @throws IOException if the file cannot be created
+     */
+    private Diagnostics diagnostics(final long from) throws IOException {
+        if (diagnosticsInterval <= 0) {
+            return null;
+        }
+
+        final var path = outputDir.resolve("diagnostics.bin");
+        final var potential = force instanceof PotentialForce p ? p
+                : force instanceof SumForce sum && sum.forces().getFirst() instanceof PotentialForce p ? p
+                : null;
+        if (potential == null) {
+            System.err.println(force.getClass().getSimpleName() + " has no potential, the diagnostics "
+                    + "sum every pair in the caller thread, raise diagnostics_interval for large runs");
+        }
+        if (from > 0 && Files.exists(path)) {
+            return Diagnostics.resume(path, particles.size(), diagnosticsInterval, potential, from);
+        }
+        return new Diagnostics(path, particles.size(), dt, diagnosticsInterval, potential);
     }
 }
@@ -0,0 +1,140 @@
+package org.sims;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Run many galaxy configs in a single JVM.
+ *
+ * Usage: {@code MainBatch <configs dir | runs.jsonl> [parallelism]}
+ *
+ * Every *.json file in the directory, or every line of the
+ * .jsonl file, is one run. Its keys override the ones in
+ * params.json, so a line only needs what changes. Runs are
+ * scheduled on a work-stealing pool, parallelism defaults
+ * to every core, and each one saves into sim/batch/<name>,
+ * where the name is the file name, or the "name" /
+ * "request_id" key of the line.
+ *
+ * Runs share the cores: unless a config sets "threads",
+ * each run gets cores / parallelism gravity threads.
+ */
+public class MainBatch {
+    private static final Type PARAMS = new TypeToken<Map<String, Object>>() {}.getType();
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: MainBatch <configs dir | runs.jsonl> [parallelism]");
+            System.exit(1);
+        }
+
+        final Gson gson = new Gson();
+        final Map<String, Object> defaults;
+        try (FileReader reader = new FileReader("src/main/resources/params.json")) {
+            defaults = gson.fromJson(reader, PARAMS);
+        }
+
+        final var runs = runs(gson, Path.of(args[0]));
+        if (runs.isEmpty()) {
+            System.out.println("No configs found in " + args[0]);
+            System.exit(1);
+        }
+
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+        final int threads = Math.max(1, cores / parallelism);
+        final Path root = Resources.pathed("batch");
+        System.out.println("Running " + runs.size() + " configs on " + parallelism + " workers with "
+                + threads + " gravity threads each into " + root);
+
+        final var pool = new ForkJoinPool(parallelism);
+        final var futures = new LinkedHashMap<String, Future<Long>>();
+        runs.forEach((name, config) -> {
+            final var params = new HashMap<>(defaults);
+            params.put("threads", (double) threads);
+            params.putAll(config);
+
+            futures.put(name, pool.submit(() -> {
+                final long start = System.nanoTime();
+                final GalaxySimulator simulator = MainGalaxy.simulator(params);
+                simulator.outputDir = root.resolve(name);
+                simulator.verbose = false;
+                simulator.simulate();
+                return System.nanoTime() - start;
+            }));
+        });
+
+        int failed = 0;
+        for (final var run : futures.entrySet()) {
+            try {
+                final var nanos = run.getValue().get();
+                System.out.printf("%s: done in %.1f s%n", run.getKey(), nanos / 1e9);
+            } catch (ExecutionException e) {
+                failed++;
+                System.out.println(run.getKey() + ": failed, " + e.getCause());
+            }
+        }
+        pool.shutdown();
+
+        System.out.println((runs.size() - failed) + "/" + runs.size() + " runs completed");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the configs to run
+     *
+     * @param gson   the parser
+     * @param source a directory of *.json files or a .jsonl file
+     * @return the configs by run name, in file order
+     * @throws IOException if the configs cannot be read
+     */
+    private static Map<String, Map<String, Object>> runs(final Gson gson, final Path source) throws IOException {
+        final var runs = new LinkedHashMap<String, Map<String, Object>>();
+
+        if (Files.isDirectory(source)) {
+            final List<Path> files = new ArrayList<>();
+            try (final var stream = Files.newDirectoryStream(source, "*.json")) {
+                stream.forEach(files::add);
+            }
+            files.sort(null);
+
+            for (final var file : files) {
+                try (final var reader = Files.newBufferedReader(file)) {
+                    final var name = file.getFileName().toString();
+                    runs.put(name.substring(0, name.length() - ".json".length()), gson.fromJson(reader, PARAMS));
+                }
+            }
+            return runs;
+        }
+
+        int line = 0;
+        for (final var json : Files.readAllLines(source)) {
+            line++;
+            if (json.isBlank()) {
+                continue;
+            }
+
+            final Map<String, Object> config = gson.fromJson(json, PARAMS);
+            final var name = config.getOrDefault("name", config.getOrDefault("request_id", "run-" + line)).toString();
+            if (runs.put(name, config) != null) {
+                throw new IOException("Duplicate run name " + name + " at line " + line);
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,55 @@
+package org.sims;
+
+import java.util.Locale;
+
+import org.sims.galaxy.GravityForce;
+import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
+import org.sims.models.Vector3;
+
+/**
+ * Gravity kernels throughput, in pair interactions per second.
+ *
+ * Usage: MainBenchmark [N] [repetitions] [threads]
+ *
+ * Run with {@code --add-modules jdk.incubator.vector}
+ * to include the SIMD kernel.
+ */
+public class MainBenchmark {
+    private static final int WARMUP = 5;
+
+    public static void main(final String[] args) {
+        final var N = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        final var reps = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final var threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        final var buffer = ParticleBuffer.of(Particle.spawnGalaxy(N, Vector3.ZERO, 4.0, 1.0, 0.01));
+
+        run("scalar", new GravityForce(1, false), buffer, reps);
+        run("parallel", new GravityForce(threads, false), buffer, reps);
+
+        if (GravityForce.SIMD_AVAILABLE) {
+            run("simd", new GravityForce(1, true), buffer, reps);
+            run("simd-parallel", new GravityForce(threads, true), buffer, reps);
+        } else {
+            System.out.println("simd: jdk.incubator.vector not available, skipping");
+        }
+    }
+
+    private static void run(final String name, final GravityForce force, final ParticleBuffer buffer, final int reps) {
+        for (int i = 0; i < WARMUP; i++) {
+            force.apply(buffer, buffer.ax, buffer.ay, buffer.az);
+        }
+
+        final var start = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            force.apply(buffer, buffer.ax, buffer.ay, buffer.az);
+        }
+        final var elapsed = (System.nanoTime() - start) / 1e9;
+
+        final var n = (long) buffer.size();
+        final var pairs = n * (n - 1) / 2 * reps;
+        System.out.println(String.format(Locale.US, "%-14s N=%d threads=%d %.3e pairs/s %.3f ms/eval",
+                name, n, force.threads(), pairs / elapsed, elapsed * 1e3 / reps));
+    }
+}
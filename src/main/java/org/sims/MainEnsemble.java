@@ -0,0 +1,185 @@
+package org.sims;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.sims.galaxy.EnergyDrift;
+import org.sims.galaxy.GalaxySimulation;
+import org.sims.galaxy.HalfMassRadiusStop;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Run K realisations of the params.json galaxy in a single JVM,
+ * and report the mean and std of t* and of the energy drift.
+ *
+ * Usage: {@code MainEnsemble <runs> [parallelism]}
+ *
+ * Every run gets its own stream split from a generator seeded
+ * with "seed" (0 by default), so the whole ensemble is reproducible,
+ * and a run is the same no matter how many run alongside it.
+ *
+ * Runs share the cores: parallelism, every core by default,
+ * is capped at the number of runs, and each run's gravity gets
+ * the cores left over, cores / parallelism threads.
+ *
+ * Each run saves into sim/ensemble/run-<k>, and its t* into
+ * sim/t-star/<integrator>/<N>/<seed>-<k>.txt, where hmr.py saves
+ * its own for tstar.py: under the setup.txt integrator name, and as
+ * a time, the first diagnostics step above the threshold times dt.
+ *
+ * @apiNote Needs diagnostics_interval > 0, t* and the drift come
+ * from the diagnostics records. With "stop": "none" the runs still
+ * go to the end, t* is just recorded.
+ */
+public class MainEnsemble {
+    private static final Type PARAMS = new TypeToken<Map<String, Object>>() {}.getType();
+
+    /**
+     * The outcome of a run
+     *
+     * @param tstar the time the half-mass radius crossed the threshold, if it did
+     * @param drift the relative energy change
+     */
+    private record Run(OptionalDouble tstar, double drift) {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: MainEnsemble <runs> [parallelism]");
+            System.exit(1);
+        }
+
+        final Map<String, Object> params;
+        try (FileReader reader = new FileReader("src/main/resources/params.json")) {
+            params = new Gson().fromJson(reader, PARAMS);
+        }
+
+        final int runs = Integer.parseInt(args[0]);
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final int parallelism = Math.min(runs, args.length > 1 ? Integer.parseInt(args[1]) : cores);
+        if (runs < 1 || parallelism < 1) {
+            System.out.println("runs and parallelism must be positive");
+            System.exit(1);
+        }
+
+        final long seed = ((Number) params.getOrDefault("seed", 0.0)).longValue();
+        final int threads = Math.max(1, cores / parallelism);
+        final var config = new HashMap<>(params);
+        config.put("threads", (double) threads);
+
+        final Path root = Resources.pathed("ensemble");
+        System.out.printf("Running %d realisations, %d at a time with %d gravity threads each, seed %d%n",
+                runs, parallelism, threads, seed);
+
+        // Built in order on this thread, so every run gets the same stream and IDs on every launch
+        final var random = new SplittableRandom(seed);
+        final var simulators = new ArrayList<GalaxySimulator>(runs);
+        final var drifts = new ArrayList<EnergyDrift>(runs);
+        final var crossings = new ArrayList<HalfMassRadiusStop>(runs);
+        for (int k = 0; k < runs; k++) {
+            final GalaxySimulator simulator = MainGalaxy.simulator(config, random.split());
+            if (simulator.diagnosticsInterval <= 0) {
+                System.out.println("The ensemble needs diagnostics_interval > 0");
+                System.exit(1);
+            }
+
+            // Without an early stop, detect t* anyway, with a grace longer than the run
+            final var hmr = simulator.stop instanceof HalfMassRadiusStop stop ? stop
+                    : new HalfMassRadiusStop((double) params.getOrDefault("stop_threshold", HalfMassRadiusStop.DEFAULT_THRESHOLD), simulator.steps);
+            final var drift = new EnergyDrift(hmr);
+
+            simulator.stop = drift;
+            simulator.outputDir = root.resolve("run-" + k);
+            simulator.verbose = false;
+
+            simulators.add(simulator);
+            drifts.add(drift);
+            crossings.add(hmr);
+        }
+
+        final var pool = new ForkJoinPool(parallelism);
+        final var futures = new ArrayList<Future<Run>>(runs);
+        for (int k = 0; k < runs; k++) {
+            final var simulator = simulators.get(k);
+            final var drift = drifts.get(k);
+            final var hmr = crossings.get(k);
+
+            futures.add(pool.submit(() -> {
+                simulator.simulate();
+                final var crossing = hmr.crossing();
+                return new Run(crossing.isPresent() ? OptionalDouble.of(crossing.getAsLong() * simulator.dt) : OptionalDouble.empty(),
+                        drift.relative());
+            }));
+        }
+
+        final var tstars = new ArrayList<Double>();
+        final var energies = new ArrayList<Double>();
+        int failed = 0;
+        for (int k = 0; k < runs; k++) {
+            try {
+                final var run = futures.get(k).get();
+                energies.add(run.drift());
+                if (run.tstar().isPresent()) {
+                    tstars.add(run.tstar().getAsDouble());
+                    save(simulators.get(k), seed + "-" + k, run.tstar().getAsDouble());
+                }
+                System.out.printf(Locale.US, "run-%d: t* = %s, drift = %.3e%n", k,
+                        run.tstar().isPresent() ? String.format(Locale.US, "%.4f", run.tstar().getAsDouble()) : "not reached",
+                        run.drift());
+            } catch (ExecutionException e) {
+                failed++;
+                System.out.println("run-" + k + ": failed, " + e.getCause());
+            }
+        }
+        pool.shutdown();
+
+        final var summary = String.format(Locale.US,
+                "runs %d, failed %d%nt* %.6f +- %.6f (%d crossed)%ndrift %.6e +- %.6e%n",
+                runs, failed, mean(tstars), std(tstars), tstars.size(), mean(energies), std(energies));
+        System.out.print(summary);
+        Resources.prepareDir(true, "ensemble");
+        try (final var writer = new BufferedWriter(new FileWriter(root.resolve("summary.txt").toFile()))) {
+            writer.write(summary);
+        }
+
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Save a t* where tstar.py looks for it
+     */
+    private static void save(final GalaxySimulator simulator, final String name, final double tstar) throws IOException {
+        final var integrator = GalaxySimulation.integratorName(simulator.integrationMethod);
+        final var n = String.valueOf(simulator.particles.size());
+        Resources.prepareDir(true, "t-star", integrator, n);
+        try (final var writer = Resources.writer("t-star", integrator, n, name + ".txt")) {
+            writer.write(String.format(Locale.US, "%.14f\n", tstar));
+        }
+    }
+
+    private static double mean(final List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN);
+    }
+
+    /**
+     * The population std, same as np.std
+     */
+    private static double std(final List<Double> values) {
+        final var mean = mean(values);
+        return Math.sqrt(values.stream().mapToDouble(v -> (v - mean) * (v - mean)).average().orElse(Double.NaN));
+    }
+}
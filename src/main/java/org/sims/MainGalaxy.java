@@ -2,7 +2,19 @@ package org.sims;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import org.sims.galaxy.BarnesHutForce;
+import org.sims.galaxy.ContactForce;
+import org.sims.galaxy.Diagnostics;
+import org.sims.galaxy.FastMultipoleForce;
+import org.sims.galaxy.GravityForce;
+import org.sims.galaxy.HalfMassRadiusStop;
+import org.sims.galaxy.SumForce;
+import org.sims.integrals.BlockHermite;
+import org.sims.interfaces.BufferForce;
+import org.sims.interfaces.Force;
+import org.sims.interfaces.StopCondition;
 import org.sims.models.Particle;
+import org.sims.trajectory.Output;
 import org.sims.models.Vector3;
 
 import java.io.*;
@@ -10,6 +22,9 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * If you are boring and don't want to use jdk25
@@ -20,7 +35,9 @@ import java.util.Map;
 //    private static final long SAVE_INTERVAL = 100L;
 //
 //    public static void main(final String[] args) throws Exception {
-//        final var simulation = GalaxySimulation.build(1000);
+//        final var particles = Particle.spawnGalaxy(1000, Vector3.ZERO, 4.0, 1.0, 0.01);
+//        final var simulation = GalaxySimulation.build(10000, 1e-3, particles, new GravityForce(), "verlet",
+//                BlockHermite.DEFAULT_ETA, BlockHermite.DEFAULT_LEVELS);
 //
 //        final var pb = new ProgressBar("Galaxing", simulation.steps());
 //        final var onStep = new Orchestrator.SkipSteps(SAVE_INTERVAL, pb::step);
@@ -41,6 +58,32 @@ public class MainGalaxy {
         FileReader reader = new FileReader("src/main/resources/params.json");
         Map<String, Object> params = gson.fromJson(reader, type);
 
+        final GalaxySimulator simulator = simulator(params);
+        simulator.resume = List.of(args).contains("--resume");
+        simulator.simulate();
+    }
+
+    /**
+     * Build a galaxy simulation from the params.json keys
+     *
+     * @param params the parsed params
+     * @return the simulator, saving to the default output path
+     */
+    public static GalaxySimulator simulator(final Map<String, Object> params) {
+        final RandomGenerator random = params.containsKey("seed")
+                ? new SplittableRandom(((Number) params.get("seed")).longValue())
+                : new Random();
+        return simulator(params, random);
+    }
+
+    /**
+     * Build a galaxy simulation from the params.json keys
+     *
+     * @param params the parsed params
+     * @param random the source of the initial conditions
+     * @return the simulator, saving to the default output path
+     */
+    public static GalaxySimulator simulator(final Map<String, Object> params, final RandomGenerator random) {
         final double dt = (double) params.get("dt");
         final String integrator = params.get("integrator").toString();
         final double steps = (double) params.get("steps");
@@ -53,16 +96,108 @@ public class MainGalaxy {
         List<Particle> particles = new ArrayList<>();
         final boolean single_galaxy = (boolean) params.get("single_galaxy");
         if (!single_galaxy) {
-            List<Particle> galaxy1 = Particle.spawnGalaxy(N1, new Vector3(-2*galaxyRadius, 0, 0), galaxyRadius, particleRadius, velocityMagnitude, true, 0.1);
-            List<Particle> galaxy2 = Particle.spawnGalaxy(N2, new Vector3(2*galaxyRadius, 0, 0), galaxyRadius, particleRadius, -velocityMagnitude, true, -0.1);
+            List<Particle> galaxy1 = Particle.spawnGalaxy(N1, new Vector3(-2*galaxyRadius, 0, 0), galaxyRadius, particleRadius, velocityMagnitude, true, 0.1, random);
+            List<Particle> galaxy2 = Particle.spawnGalaxy(N2, new Vector3(2*galaxyRadius, 0, 0), galaxyRadius, particleRadius, -velocityMagnitude, true, -0.1, random);
             galaxy1.addAll(galaxy2);
             particles.addAll(galaxy1);
         }
         else{
-            particles = Particle.spawnGalaxy(N1, Vector3.ZERO, galaxyRadius, particleRadius, velocityMagnitude);
+            particles = Particle.spawnGalaxy(N1, Vector3.ZERO, galaxyRadius, particleRadius, velocityMagnitude, random);
+        }
+
+        final GalaxySimulator simulator = new GalaxySimulator(dt, steps, integrator, SAVE_INTERVAL, N1, mass, galaxyRadius, particleRadius, velocityMagnitude, particles,
+                force(params), Output.from(params));
+        simulator.checkpointInterval = ((Double) params.getOrDefault("checkpoint_interval", 0.0)).longValue();
+        simulator.diagnosticsInterval = ((Number) params.getOrDefault("diagnostics_interval", SAVE_INTERVAL)).longValue();
+        simulator.stop = stop(params, simulator);
+        simulator.eta = (double) params.getOrDefault("eta", BlockHermite.DEFAULT_ETA);
+        simulator.blockLevels = ((Number) params.getOrDefault("block_levels", BlockHermite.DEFAULT_LEVELS)).intValue();
+        return simulator;
+    }
+
+    /**
+     * Pick the early stop from the params.
+     *
+     * "none" (default) runs every step,
+     * "hmr" ends the run "stop_grace" time units after t*, the first time the
+     * half-mass radius goes above "stop_threshold" (1 by default).
+     *
+     * @param params    the parsed params.json
+     * @param simulator the simulator, for its dt and diagnostics interval
+     * @return the stop condition
+     */
+    private static StopCondition<Diagnostics.Sample> stop(final Map<String, Object> params, final GalaxySimulator simulator) {
+        final String name = params.getOrDefault("stop", "none").toString();
+        switch (name) {
+            case "none":
+                return StopCondition.never();
+            case "hmr":
+                if (simulator.diagnosticsInterval <= 0) {
+                    throw new IllegalArgumentException("The hmr stop needs diagnostics_interval > 0");
+                }
+                final double threshold = (double) params.getOrDefault("stop_threshold", HalfMassRadiusStop.DEFAULT_THRESHOLD);
+                final double grace = (double) params.getOrDefault("stop_grace", 0.0);
+                return new HalfMassRadiusStop(threshold, (long) Math.ceil(grace / simulator.dt));
+            default:
+                throw new IllegalArgumentException("Unknown stop: " + name + ", available stops: none, hmr");
+        }
+    }
+
+    /**
+     * Pick the force from the params, gravity plus,
+     * with "contact": true, the short-range repulsion of overlapping
+     * particles of radius "particle_radius", with spring constant
+     * "contact_stiffness" and neighbour list skin "contact_skin".
+     *
+     * @param params the parsed params.json
+     * @return the force to use
+     */
+    private static Force<Particle> force(final Map<String, Object> params) {
+        final Force<Particle> gravity = gravity(params);
+        if (!(boolean) params.getOrDefault("contact", false)) {
+            return gravity;
         }
 
-        new GalaxySimulator(dt, steps, integrator, SAVE_INTERVAL, N1, mass, galaxyRadius, particleRadius, velocityMagnitude, particles).simulate();
+        final double stiffness = (double) params.getOrDefault("contact_stiffness", ContactForce.DEFAULT_STIFFNESS);
+        final double skin = (double) params.getOrDefault("contact_skin", 0.1 * (double) params.get("particle_radius"));
+        return new SumForce(BufferForce.of(gravity), new ContactForce(stiffness, skin));
+    }
+
+    /**
+     * Pick the gravity implementation from the params.
+     *
+     * "gravity" (default) is the exact O(N^2) sum, split over "threads"
+     * workers (1 by default, 0 for every core), optionally on the
+     * Vector API kernel with "simd": true,
+     * "barneshut" is the octree approximation with opening angle "theta",
+     * "fmm" is the fast multipole method of order "fmm_order", opening angle
+     * "fmm_theta" and leaves of up to "fmm_leaf" particles, see MainMultipole
+     * to pick them.
+     *
+     * @param params the parsed params.json
+     * @return the force to use
+     */
+    private static Force<Particle> gravity(final Map<String, Object> params) {
+        final String name = params.getOrDefault("force", "gravity").toString();
+        switch (name) {
+            case "gravity":
+                final int threads = ((Double) params.getOrDefault("threads", 1.0)).intValue();
+                final boolean simd = (boolean) params.getOrDefault("simd", false);
+                if (simd && !GravityForce.SIMD_AVAILABLE) {
+                    System.out.println("jdk.incubator.vector not available, using the scalar gravity kernel");
+                }
+                return new GravityForce(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), simd);
+            case "barneshut":
+                final double theta = (double) params.getOrDefault("theta", BarnesHutForce.DEFAULT_THETA);
+                return new BarnesHutForce(theta);
+            case "fmm":
+                final int order = ((Number) params.getOrDefault("fmm_order", FastMultipoleForce.DEFAULT_ORDER)).intValue();
+                final double fmmTheta = (double) params.getOrDefault("fmm_theta", FastMultipoleForce.DEFAULT_THETA);
+                final int leaf = ((Number) params.getOrDefault("fmm_leaf", FastMultipoleForce.DEFAULT_LEAF)).intValue();
+                return new FastMultipoleForce(order, fmmTheta, leaf);
+            default:
+                throw new IllegalArgumentException("Unknown force: " + name + ", available forces: gravity, barneshut, fmm");
+        }
     }
 
 }
@@ -0,0 +1,139 @@
+package org.sims;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.sims.galaxy.FastMultipoleForce;
+import org.sims.galaxy.GravityForce;
+import org.sims.models.Forces;
+import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
+import org.sims.models.Vector3;
+
+/**
+ * Accuracy and throughput of the fast multipole gravity against the
+ * direct sum, for every expansion order up to a maximum, to pick
+ * "fmm_order" for a run.
+ *
+ * Usage: MainMultipole [N] [max order] [theta] [leaf] [repetitions] [threads]
+ *
+ * The errors are |a_fmm - a| / |a| over a fixed sample of particles,
+ * whose exact accelerations are summed over every other particle.
+ * The direct sum is timed on "threads" workers, every core by default.
+ * Past {@link #DIRECT_LIMIT} particles it is too slow to time, so its
+ * cost is extrapolated from its pair rate on a subset.
+ */
+public class MainMultipole {
+    private static final int WARMUP = 2;
+    private static final int SAMPLE = 1000;
+    private static final int DIRECT_LIMIT = 32768;
+
+    public static void main(final String[] args) {
+        final var N = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final var maxOrder = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final var theta = args.length > 2 ? Double.parseDouble(args[2]) : FastMultipoleForce.DEFAULT_THETA;
+        final var leaf = args.length > 3 ? Integer.parseInt(args[3]) : FastMultipoleForce.DEFAULT_LEAF;
+        final var reps = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        final var threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        final var random = new SplittableRandom(0);
+        final var buffer = ParticleBuffer.of(Particle.spawnGalaxy(N, Vector3.ZERO, 4.0, 1.0, 0.01, random));
+
+        // Exact accelerations of the sampled particles
+        final var sample = random.ints(Math.min(SAMPLE, N), 0, N).toArray();
+        final var exact = new double[3 * sample.length];
+        for (int s = 0; s < sample.length; s++) {
+            exact(buffer, sample[s], exact, 3 * s);
+        }
+
+        final var direct = direct(buffer, threads, reps);
+        System.out.println(String.format(Locale.US, "direct   N=%d threads=%d %.3f ms/eval%s",
+                N, threads, direct, N > DIRECT_LIMIT ? " (extrapolated)" : ""));
+
+        final var ax = new double[N];
+        final var ay = new double[N];
+        final var az = new double[N];
+        for (int order = 1; order <= maxOrder; order++) {
+            final var force = new FastMultipoleForce(order, theta, leaf);
+            final var ms = time(() -> force.apply(buffer, ax, ay, az), reps);
+
+            double rms = 0, max = 0;
+            for (int s = 0; s < sample.length; s++) {
+                final var i = sample[s];
+                final var ex = exact[3 * s];
+                final var ey = exact[3 * s + 1];
+                final var ez = exact[3 * s + 2];
+                final var dx = ax[i] - ex;
+                final var dy = ay[i] - ey;
+                final var dz = az[i] - ez;
+                final var error = Math.sqrt((dx * dx + dy * dy + dz * dz) / (ex * ex + ey * ey + ez * ez));
+                rms += error * error;
+                max = Math.max(max, error);
+            }
+            rms = Math.sqrt(rms / sample.length);
+
+            System.out.println(String.format(Locale.US,
+                    "fmm      order=%d theta=%.2f leaf=%d %.3f ms/eval %.2fx rms=%.3e max=%.3e",
+                    order, theta, leaf, ms, direct / ms, rms, max));
+        }
+    }
+
+    /**
+     * The direct sum cost, in ms per evaluation
+     */
+    private static double direct(final ParticleBuffer buffer, final int threads, final int reps) {
+        final var force = new GravityForce(threads);
+        final long n = buffer.size();
+
+        if (n <= DIRECT_LIMIT) {
+            return time(() -> force.apply(buffer, buffer.ax, buffer.ay, buffer.az), reps);
+        }
+
+        final var subset = new ArrayList<Particle>(DIRECT_LIMIT / 4);
+        for (int i = 0; i < DIRECT_LIMIT / 4; i++) {
+            subset.add(buffer.particle(i));
+        }
+        final var small = ParticleBuffer.of(subset);
+        final long m = small.size();
+        final var ms = time(() -> force.apply(small, small.ax, small.ay, small.az), reps);
+        return ms * (n * (n - 1)) / (m * (m - 1));
+    }
+
+    /**
+     * The softened pull of every other particle over i
+     */
+    private static void exact(final ParticleBuffer p, final int i, final double[] out, final int at) {
+        final var h2 = Forces.H * Forces.H;
+        double sx = 0, sy = 0, sz = 0;
+        for (int j = 0; j < p.size(); j++) {
+            if (j == i) {
+                continue;
+            }
+
+            final var dx = p.x[i] - p.x[j];
+            final var dy = p.y[i] - p.y[j];
+            final var dz = p.z[i] - p.z[j];
+            final var r2 = dx * dx + dy * dy + dz * dz + h2;
+            final var inv = 1.0 / (r2 * Math.sqrt(r2));
+            sx -= dx * inv;
+            sy -= dy * inv;
+            sz -= dz * inv;
+        }
+        out[at] = sx;
+        out[at + 1] = sy;
+        out[at + 2] = sz;
+    }
+
+    private static double time(final Runnable evaluation, final int reps) {
+        for (int i = 0; i < WARMUP; i++) {
+            evaluation.run();
+        }
+
+        final var start = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            evaluation.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / reps;
+    }
+}
@@ -8,6 +8,7 @@ import org.sims.interfaces.Integrator;
 import org.sims.models.Particle;
 import org.sims.models.Vector3;
 import org.sims.oscillator.*;
+import org.sims.trajectory.Output;
 
 import me.tongfei.progressbar.ProgressBar;
 
@@ -15,6 +16,9 @@ import java.io.*;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public class MainOscillator {
@@ -33,8 +37,66 @@ public class MainOscillator {
         final double mass = (double) params.get("mass");
         final double steps = (double) params.get("steps");
 
-        new OscilationSimulator(dt, steps, integrator, springConstant, dampingCoefficient, mass, SAVE_INTERVAL).simulate();
+        if (args.length > 0 && args[0].equals("--ensemble")) {
+            ensemble(params, dt, integrator, springConstant, dampingCoefficient, mass, steps);
+            return;
+        }
+
+        final Output output = Output.from(params);
+
+        new OscilationSimulator(dt, steps, integrator, springConstant, dampingCoefficient, mass, SAVE_INTERVAL, output).simulate();
     }
 
-}
+    /**
+     * Run every dt and integrator pair in a single pass, see {@link OscillatorEnsemble}.
+     *
+     * The dts and integrators are read from the "ensemble_dt" and
+     * "ensemble_integrator" lists, defaulting to the single ones,
+     * and the duration from "ensemble_seconds", defaulting to steps * dt.
+     *
+     * Saves a summary to sim/ensemble.txt, and each mean squared
+     * error to sim/osc-error-ensemble/<integrator>/<dt>.txt, see oscerr.py --ensemble.
+     *
+     * @apiNote The errors are not comparable with the ones of oscillate.py,
+     * in sim/osc-error: they are against the exact solution, sin term included,
+     * and averaged over every step instead of the saved ones.
+     */
+    @SuppressWarnings("unchecked")
+    private static void ensemble(final Map<String, Object> params, final double dt, final String integrator,
+            final double k, final double gamma, final double mass, final double steps) throws IOException {
+        final List<Double> dts = (List<Double>) params.getOrDefault("ensemble_dt", List.of(dt));
+        final List<String> integrators = (List<String>) params.getOrDefault("ensemble_integrator", List.of(integrator));
+        final double seconds = (double) params.getOrDefault("ensemble_seconds", steps * dt);
+
+        final var members = new ArrayList<OscillatorEnsemble.Member>();
+        for (final var method : integrators) {
+            for (final var step : dts) {
+                members.add(new OscillatorEnsemble.Member(method, step, k, gamma, mass));
+            }
+        }
 
+        final List<OscillatorEnsemble.Result> results;
+        try {
+            results = OscillatorEnsemble.run(members, seconds);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        Resources.init();
+        try (final var writer = Resources.writer("ensemble.txt")) {
+            for (final var r : results) {
+                final var line = String.format(Locale.US, "%s %s %d %.14e %.14e %.14f",
+                        r.name(), r.member().dt(), r.steps(), r.mse(), r.maxError(), r.x());
+                writer.write(line + "\n");
+                System.out.println(line);
+
+                Resources.prepareDir(true, "osc-error-ensemble", r.name());
+                try (final var error = Resources.writer("osc-error-ensemble", r.name(), r.member().dt() + ".txt")) {
+                    error.write(String.format(Locale.US, "%s\n", r.mse()));
+                }
+            }
+        }
+    }
+}
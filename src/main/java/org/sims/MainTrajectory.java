@@ -0,0 +1,85 @@
+package org.sims;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Locale;
+
+import org.sims.trajectory.CompressedTrajectory;
+import org.sims.trajectory.CompressedTrajectoryReader;
+import org.sims.trajectory.CompressedTrajectoryWriter;
+import org.sims.trajectory.Trajectory;
+import org.sims.trajectory.TrajectoryReader;
+import org.sims.trajectory.TrajectoryWriter;
+
+/**
+ * Converts between binary and compressed trajectories.
+ *
+ * Usage: MainTrajectory compress &lt;steps.bin&gt; &lt;steps.tp4z&gt; [precision] [block]
+ * Usage: MainTrajectory decompress &lt;steps.tp4z&gt; &lt;steps.bin&gt;
+ *
+ * Compressing prints the size ratio and the largest error, 0 when lossless.
+ * Decompressing gives back a steps.bin for the Python scripts.
+ */
+public class MainTrajectory {
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: MainTrajectory compress <steps.bin> <steps.tp4z> [precision] [block]");
+            System.out.println("       MainTrajectory decompress <steps.tp4z> <steps.bin>");
+            System.exit(1);
+        }
+
+        final var in = Path.of(args[1]);
+        final var out = Path.of(args[2]);
+
+        switch (args[0]) {
+            case "compress" -> compress(in, out,
+                    args.length > 3 ? Double.parseDouble(args[3]) : 0,
+                    args.length > 4 ? Integer.parseInt(args[4]) : CompressedTrajectory.DEFAULT_BLOCK);
+            case "decompress" -> decompress(in, out);
+            default -> {
+                System.out.println("Unknown mode: " + args[0]);
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void compress(final Path in, final Path out, final double precision, final int block)
+            throws IOException {
+        try (final var reader = new TrajectoryReader(in)) {
+            try (final var writer = new CompressedTrajectoryWriter(out, reader.particles(), reader.dt(),
+                    reader.interval(), reader.integrator(), block, precision)) {
+                for (long f = 0; f < reader.frames(); f++) {
+                    writer.write(reader.step(f), reader.frame(f));
+                }
+            }
+
+            // Read it back, to report the real error
+            double error = 0;
+            try (final var check = new CompressedTrajectoryReader(out)) {
+                final var values = new double[Trajectory.VALUES_PER_PARTICLE * check.particles()];
+                for (long f = 0; f < reader.frames(); f++) {
+                    final var expected = reader.frame(f);
+                    check.frame(f, values);
+                    for (int i = 0; i < values.length; i++) {
+                        error = Math.max(error, Math.abs(values[i] - expected[i]));
+                    }
+                }
+            }
+
+            System.out.println(String.format(Locale.US, "%d frames, %d -> %d bytes, %.2fx, max error %.3e",
+                    reader.frames(), Files.size(in), Files.size(out), (double) Files.size(in) / Files.size(out), error));
+        }
+    }
+
+    private static void decompress(final Path in, final Path out) throws IOException {
+        try (final var reader = new CompressedTrajectoryReader(in);
+                final var writer = new TrajectoryWriter(out, reader.particles(), reader.dt(), reader.interval(),
+                        reader.integrator())) {
+            for (long f = 0; f < reader.frames(); f++) {
+                writer.write(reader.step(f), reader.frame(f));
+            }
+
+            System.out.println(reader.frames() + " frames, precision " + reader.precision());
+        }
+    }
+}
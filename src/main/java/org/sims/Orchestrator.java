@@ -1,14 +1,25 @@
 package org.sims;
 
 import java.io.*;
-import java.util.*;
+import java.nio.file.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.function.*;
 
 import org.sims.interfaces.*;
+import org.sims.trajectory.SnapshotWriter;
+
+/**
+ * Runs an engine, saving its steps.
+ *
+ * @param simulation the simulation setup, saved as setup.txt
+ * @param engine     the engine producing the steps
+ * @param dir        where the snapshot writer runs save setup.txt
+ */
+public record Orchestrator(Simulation<?, ?> simulation, Engine<?> engine, Path dir) {
+    public Orchestrator(final Simulation<?, ?> simulation, final Engine<?> engine) {
+        this(simulation, engine, Path.of(Resources.OUTPUT_PATH));
+    }
 
-public record Orchestrator(Simulation<?, ?> simulation, Engine<?> engine) {
     /**
      * Start the simulation.
      *
@@ -21,6 +32,22 @@ public record Orchestrator(Simulation<?, ?> simulation, Engine<?> engine) {
      * @param onStep The OnStep event handler.
      */
     public void start(final OnStep onStep) throws Exception {
+        start(onStep, StopCondition.never());
+    }
+
+    /**
+     * Start the simulation, ending it early once a condition is met.
+     *
+     * The stop condition observes every step after OnStep,
+     * so the step that meets it is still saved.
+     *
+     * @apiNote The stop condition sees the engine's live cursor,
+     * which moves on with the next step, see {@link Engine.Cursor}.
+     *
+     * @param onStep The OnStep event handler.
+     * @param stop   The condition to end the simulation early.
+     */
+    public void start(final OnStep onStep, final StopCondition<? super Step> stop) throws Exception {
         Resources.init();
         Resources.prepareDir("steps");
 
@@ -29,18 +56,84 @@ public record Orchestrator(Simulation<?, ?> simulation, Engine<?> engine) {
         }
 
         try (final var animator = Executors.newFixedThreadPool(3)) {
-            save(animator, engine.initial(), 0L);
-            engine.forEach(step -> onStep.apply(step).ifPresent(idx -> save(animator, step, idx)));
+            save(animator, engine.initial(), 0);
+            final var cursor = engine.cursor();
+            while (cursor.advance()) {
+                final var idx = onStep.select(cursor.i());
+                if (idx != OnStep.SKIP) {
+                    save(animator, cursor.step(), idx);
+                }
+                if (stop.done(cursor)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Start the simulation, saving the steps through a snapshot writer,
+     * so they can go to a binary trajectory or a live stream instead
+     * of a text file per step, see {@link org.sims.trajectory.Output}.
+     *
+     * OnStep only filters the steps, they are submitted with their own
+     * index, so the writer interval should match the one of OnStep.
+     * The initial step is saved when it's the step 0, or when OnStep
+     * selects it, as for a resumed run. The stop condition observes
+     * it too.
+     *
+     * @apiNote The steps must carry their particles, see {@link Step#snapshot(SnapshotWriter)}.
+     * @apiNote The writer is closed when the simulation ends.
+     *
+     * @param onStep    The OnStep event handler.
+     * @param stop      The condition to end the simulation early.
+     * @param snapshots The writer to save the steps to.
+     */
+    public void start(final OnStep onStep, final StopCondition<? super Step> stop, final SnapshotWriter snapshots)
+            throws Exception {
+        try (snapshots) {
+            Resources.prepareDir(dir, true);
+
+            try (final var writer = Files.newBufferedWriter(dir.resolve("setup.txt"))) {
+                simulation.saveTo(writer);
+            }
+
+            final Step initial = engine.initial();
+            if (initial.i() == 0 || onStep.select(initial.i()) != OnStep.SKIP) {
+                initial.snapshot(snapshots);
+            }
+            if (stop.done(initial)) {
+                return;
+            }
+
+            // The cursor copies the selected states straight into the writer
+            final var cursor = engine.cursor();
+            while (cursor.advance()) {
+                if (onStep.select(cursor.i()) != OnStep.SKIP) {
+                    cursor.snapshot(snapshots);
+                }
+                if (stop.done(cursor)) {
+                    break;
+                }
+            }
         }
     }
 
     /**
      * A function called on each step.
      *
-     * Returning empty optionals allow the caller to skip saving steps.
+     * Picks the steps to save by their index alone, before
+     * the engine builds them, returning {@link #SKIP} for the rest.
      * Similar to a filter, but it requires the idx to save to.
      */
-    public interface OnStep extends Function<Step, Optional<Long>> {
+    @FunctionalInterface
+    public interface OnStep {
+        long SKIP = -1;
+
+        /**
+         * @param step the step index
+         * @return the idx to save the step to, or SKIP
+         */
+        long select(long step);
     }
 
     /**
@@ -49,23 +142,23 @@ public record Orchestrator(Simulation<?, ?> simulation, Engine<?> engine) {
      */
     public record SkipSteps(long n, Runnable callback) implements OnStep {
         @Override
-        public Optional<Long> apply(final Step step) {
+        public long select(final long step) {
             callback.run();
-            return step.i() % n == 0 ? Optional.of(step.i() / n) : Optional.empty();
+            return step % n == 0 ? step / n : SKIP;
         }
     }
 
     /**
      * Save a step with idx using an executor service
      */
-    private static void save(final ExecutorService ex, final Step step, final Long idx) {
+    private static void save(final ExecutorService ex, final Step step, final long idx) {
         ex.submit(new Animator(step, idx));
     }
 
     /**
      * A task to save an animation step
      */
-    private static record Animator(Step step, Long idx) implements Runnable {
+    private static record Animator(Step step, long idx) implements Runnable {
         @Override
         public void run() {
             final var filename = "%d.txt".formatted(idx);
@@ -4,20 +4,21 @@ import org.sims.integrals.BeemanIntegrator;
 import org.sims.integrals.GearIntegrator;
 import org.sims.integrals.GearType;
 import org.sims.integrals.Verlet;
+import org.sims.interfaces.BufferIntegrator;
 import org.sims.interfaces.Integrator;
 import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
 import org.sims.models.Vector3;
 import org.sims.oscillator.OscillatorForce;
+import org.sims.trajectory.Output;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 class OscilationSimulator {
     public final double dt;
@@ -25,13 +26,15 @@ class OscilationSimulator {
     public String integrationMethod;
     public final OscillatorForce force;
     public final long SAVE_INTERVAL;
+    public final Output output;
 
-    public OscilationSimulator(final double dt, final double steps, final String integrationMethod, Double springConstant, Double dampingCoefficient, Double mass, long SAVE_INTERVAL) {
+    public OscilationSimulator(final double dt, final double steps, final String integrationMethod, Double springConstant, Double dampingCoefficient, Double mass, long SAVE_INTERVAL, Output output) {
         this.dt = dt;
         this.integrationMethod = integrationMethod;
         this.force = new OscillatorForce(springConstant, dampingCoefficient, mass);
         this.steps = (long) steps;
         this.SAVE_INTERVAL = SAVE_INTERVAL;
+        this.output = output;
     }
 
 
@@ -43,8 +46,6 @@ class OscilationSimulator {
         Resources.init();
         Resources.prepareDir("steps");
 
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-        Object lock = new Object();
         switch (integrationMethod) {
             case "gearposition":
                 integrator = new GearIntegrator(dt, force, GearType.POSITION);
@@ -78,28 +79,41 @@ class OscilationSimulator {
                 steps, dt, force.k(), force.gamma(), force.mass(), integratorName));
         writer.close();
 
+        // Snapshots are copied here and saved by the writer thread
+        final var snapshots = output.open(Path.of(Resources.OUTPUT_PATH), particles.size(), dt, SAVE_INTERVAL, integratorName);
 
-        //============ Simulation loop ============
-        for (int i = 0; i < steps; i++) {
-            //1. Compute next step
-            particles = integrator.step(particles); //TODO remove warning
+        // Array-based path, the oscillator force is array-based too
+        final BufferIntegrator buffered = integrator instanceof BufferIntegrator b ? b : null;
+        final ParticleBuffer buffer = buffered != null ? ParticleBuffer.of(particles) : null;
+        if (buffered != null) {
+            buffered.prepare(buffer);
+        }
+
+        // Closing saves the queued snapshots, a failed step included
+        try (snapshots) {
+            //============ Simulation loop ============
+            for (int i = 0; i < steps; i++) {
+                //1. Compute next step
+                if (buffered != null) {
+                    buffered.step(buffer);
+                } else {
+                    particles = integrator.step(particles); //TODO remove warning
+                }
 
-            //2. Save to file every SAVE_INTERVAL steps
-            if (i % SAVE_INTERVAL == 0) {
-                System.out.println("Saving step " + i + "/" + steps);
-                executor.submit(new SaveIntegrationStep((int) (i / SAVE_INTERVAL), lock, particles));
+                //2. Save to file every SAVE_INTERVAL steps
+                if (i % SAVE_INTERVAL == 0) {
+                    System.out.println("Saving step " + i + "/" + steps);
+                    if (buffered != null) {
+                        snapshots.submit(i, buffer);
+                    } else {
+                        snapshots.submit(i, particles);
+                    }
+                }
             }
         }
 
-        executor.shutdown(); // stop accepting new tasks
-        try {
-            if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
-                System.err.println("Some tasks did not finish in time!");
-                executor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+        if (snapshots.dropped() + snapshots.coalesced() > 0) {
+            System.err.println("Skipped " + (snapshots.dropped() + snapshots.coalesced()) + " snapshots, the writer fell behind");
         }
 
     }
@@ -21,7 +21,18 @@ public abstract class Resources {
      * @param path     the path components
      */
     public static void prepareDir(boolean preserve, String... path) {
-        final var directory = pathed(path).toFile();
+        prepareDir(Path.of(OUTPUT_PATH), preserve, path);
+    }
+
+    /**
+     * Prepare a directory path for output, under another base directory
+     *
+     * @param base     the base directory, instead of OUTPUT_PATH
+     * @param preserve whether to preserve existing files
+     * @param path     the path components
+     */
+    public static void prepareDir(Path base, boolean preserve, String... path) {
+        final var directory = Path.of(base.toString(), path).toFile();
 
         if (!directory.exists()) {
             directory.mkdirs();
@@ -69,7 +80,7 @@ public abstract class Resources {
      * @param path the path components
      * @return the built path
      */
-    private static Path pathed(String... path) {
+    public static Path pathed(String... path) {
         return Path.of(OUTPUT_PATH, path);
     }
 }
@@ -0,0 +1,192 @@
+package org.sims.galaxy;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import org.sims.interfaces.Force;
+import org.sims.models.Forces;
+import org.sims.models.Particle;
+import org.sims.models.Vector3;
+
+/**
+ * Barnes-Hut approximation of the softened gravity.
+ *
+ * Particles are inserted in an octree, where every node
+ * stores the mass and center of mass of its subtree.
+ * A node is treated as a single body whenever its size
+ * is small compared to the distance to the target,
+ * {@code size / distance < theta}.
+ *
+ * @apiNote Assumes G = 1 and m = 1, same as {@link Forces#gravity}.
+ * @apiNote theta = 0 degenerates into the exact direct sum.
+ * @apiNote theta must stay below 1, past 2 / sqrt(3) a particle
+ *          could accept its own cell and pull on itself.
+ *
+ * @param theta the opening angle
+ */
+public record BarnesHutForce(double theta) implements Force<Particle> {
+    public static final double DEFAULT_THETA = 0.5;
+
+    /**
+     * Nodes deeper than this are not split anymore,
+     * which protects against coincident particles.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    public BarnesHutForce {
+        if (theta < 0 || theta >= 1) {
+            throw new IllegalArgumentException("theta must be in [0, 1), got " + theta);
+        }
+    }
+
+    public BarnesHutForce() {
+        this(DEFAULT_THETA);
+    }
+
+    @Override
+    public Map<Particle, Vector3> apply(final Collection<Particle> particles) {
+        if (particles.isEmpty()) {
+            return Map.of();
+        }
+
+        final var root = Node.root(particles);
+        particles.forEach(p -> root.insert(p, 0));
+        root.summarize();
+
+        final var theta2 = theta * theta;
+        return particles.parallelStream().collect(Collectors.toMap(Function.identity(), p -> {
+            final var acc = new double[3];
+            root.pull(p, theta2, acc);
+            return new Vector3(acc[0], acc[1], acc[2]);
+        }));
+    }
+
+    /**
+     * An octree cell
+     */
+    private static final class Node {
+        private final double cx, cy, cz, half;
+        private Node[] children;
+        private Particle body;
+        private double mass, mx, my, mz;
+
+        private Node(final double cx, final double cy, final double cz, final double half) {
+            this.cx = cx;
+            this.cy = cy;
+            this.cz = cz;
+            this.half = half;
+        }
+
+        /**
+         * Build an empty cubic root enclosing every particle
+         */
+        private static Node root(final Collection<Particle> particles) {
+            double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+
+            for (final var p : particles) {
+                final var r = p.getPosition();
+                minX = Math.min(minX, r.x());
+                minY = Math.min(minY, r.y());
+                minZ = Math.min(minZ, r.z());
+                maxX = Math.max(maxX, r.x());
+                maxY = Math.max(maxY, r.y());
+                maxZ = Math.max(maxZ, r.z());
+            }
+
+            final var half = Math.max(Math.max(maxX - minX, maxY - minY), Math.max(maxZ - minZ, Double.MIN_NORMAL)) / 2;
+            return new Node((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, half * (1 + 1e-9));
+        }
+
+        private void insert(final Particle p, final int depth) {
+            // Masses and centers are accumulated as sums and normalized in summarize()
+            final var r = p.getPosition();
+            mass += 1;
+            mx += r.x();
+            my += r.y();
+            mz += r.z();
+
+            if (children == null) {
+                if (body == null && mass == 1) {
+                    body = p;
+                    return;
+                }
+
+                if (depth >= MAX_DEPTH) {
+                    body = null;
+                    return;
+                }
+
+                children = new Node[8];
+                if (body != null) {
+                    child(body.getPosition()).insert(body, depth + 1);
+                    body = null;
+                }
+            }
+
+            child(r).insert(p, depth + 1);
+        }
+
+        private Node child(final Vector3 r) {
+            final var ix = r.x() >= cx ? 1 : 0;
+            final var iy = r.y() >= cy ? 1 : 0;
+            final var iz = r.z() >= cz ? 1 : 0;
+            final var idx = ix | iy << 1 | iz << 2;
+
+            if (children[idx] == null) {
+                final var q = half / 2;
+                children[idx] = new Node(cx + (ix == 1 ? q : -q), cy + (iy == 1 ? q : -q), cz + (iz == 1 ? q : -q), q);
+            }
+
+            return children[idx];
+        }
+
+        /**
+         * Turn the accumulated position sums into centers of mass
+         */
+        private void summarize() {
+            mx /= mass;
+            my /= mass;
+            mz /= mass;
+
+            if (children != null) {
+                for (final var c : children) {
+                    if (c != null) {
+                        c.summarize();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Accumulate the acceleration exerted by this node over p
+         */
+        private void pull(final Particle p, final double theta2, final double[] acc) {
+            if (body == p) {
+                return;
+            }
+
+            final var r = p.getPosition();
+            final var dx = r.x() - mx;
+            final var dy = r.y() - my;
+            final var dz = r.z() - mz;
+            final var d2 = dx * dx + dy * dy + dz * dz;
+            final var size = 2 * half;
+
+            if (children == null || size * size < theta2 * d2) {
+                final var inv = mass / Math.pow(d2 + Forces.H * Forces.H, 1.5);
+                acc[0] -= dx * inv;
+                acc[1] -= dy * inv;
+                acc[2] -= dz * inv;
+                return;
+            }
+
+            for (final var c : children) {
+                if (c != null) {
+                    c.pull(p, theta2, acc);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.sims.galaxy;
+
+import java.util.*;
+
+import org.sims.interfaces.BufferForce;
+import org.sims.interfaces.Force;
+import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
+import org.sims.models.Vector3;
+
+/**
+ * Short-range repulsion between overlapping particles,
+ * so bodies bounce off each other instead of passing through.
+ *
+ * Two particles closer than the sum of their radii are pushed
+ * apart by a linear spring on the overlap, {@code k * overlap}
+ * along the line between them.
+ *
+ * Candidate pairs come from a Verlet neighbour list, every pair
+ * closer than the sum of their radii plus a skin. The list is built
+ * from a cell list, a uniform grid of cells as wide as the largest
+ * cutoff, hashed so only occupied cells cost memory, and is reused
+ * until some particle moved more than half the skin since the build.
+ * So every evaluation is linear in the number of close pairs.
+ *
+ * @apiNote Assumes m = 1, same as {@link GravityForce}, and the
+ * radius of each slot is read from its source particle.
+ */
+public class ContactForce implements Force<Particle>, BufferForce {
+    public static final double DEFAULT_STIFFNESS = 1e3;
+
+    /**
+     * The 27 cells around a cell, itself included
+     */
+    private static final int NEIGHBOURS = 27;
+
+    private final double stiffness;
+    private final double skin;
+
+    /**
+     * The particles the list was built for, and their positions then
+     */
+    private long[] ids;
+    private double[] radii, rx, ry, rz;
+
+    /**
+     * Neighbour list, the partners j > i of slot i are list[start[i], start[i + 1])
+     */
+    private int[] start;
+    private int[] list = new int[0];
+
+    /**
+     * Hashed cell list, chained by slot
+     */
+    private int[] head, next;
+
+    private long builds = 0;
+
+    /**
+     * @param stiffness the spring constant of the overlap
+     * @param skin      the margin over the contact distance kept in the list
+     */
+    public ContactForce(final double stiffness, final double skin) {
+        if (stiffness < 0) {
+            throw new IllegalArgumentException("stiffness must be non negative, got " + stiffness);
+        }
+        if (skin <= 0) {
+            throw new IllegalArgumentException("skin must be positive, got " + skin);
+        }
+
+        this.stiffness = stiffness;
+        this.skin = skin;
+    }
+
+    public double stiffness() {
+        return stiffness;
+    }
+
+    public double skin() {
+        return skin;
+    }
+
+    /**
+     * The number of neighbour list builds so far
+     */
+    public long builds() {
+        return builds;
+    }
+
+    @Override
+    public Map<Particle, Vector3> apply(final Collection<Particle> particles) {
+        return BufferForce.map(this, particles);
+    }
+
+    @Override
+    public void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        final var n = particles.size();
+        Arrays.fill(ax, 0, n, 0);
+        Arrays.fill(ay, 0, n, 0);
+        Arrays.fill(az, 0, n, 0);
+
+        if (stale(particles)) {
+            build(particles);
+        }
+
+        final var x = particles.x;
+        final var y = particles.y;
+        final var z = particles.z;
+        for (int i = 0; i < n; i++) {
+            for (int k = start[i]; k < start[i + 1]; k++) {
+                final var j = list[k];
+                final var dx = x[i] - x[j];
+                final var dy = y[i] - y[j];
+                final var dz = z[i] - z[j];
+                final var d2 = dx * dx + dy * dy + dz * dz;
+                final var contact = radii[i] + radii[j];
+                if (d2 >= contact * contact || d2 == 0) {
+                    continue;
+                }
+
+                final var d = Math.sqrt(d2);
+                final var f = stiffness * (contact - d) / d;
+                ax[i] += dx * f;
+                ay[i] += dy * f;
+                az[i] += dz * f;
+                ax[j] -= dx * f;
+                ay[j] -= dy * f;
+                az[j] -= dz * f;
+            }
+        }
+    }
+
+    /**
+     * Whether the list is for other particles, or someone moved past half the skin
+     */
+    private boolean stale(final ParticleBuffer p) {
+        if (ids == null || !Arrays.equals(ids, p.ids)) {
+            return true;
+        }
+
+        final var limit = skin * skin / 4;
+        for (int i = 0; i < p.size(); i++) {
+            final var dx = p.x[i] - rx[i];
+            final var dy = p.y[i] - ry[i];
+            final var dz = p.z[i] - rz[i];
+            if (dx * dx + dy * dy + dz * dz > limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void build(final ParticleBuffer p) {
+        final var n = p.size();
+        builds++;
+
+        if (ids == null || !Arrays.equals(ids, p.ids)) {
+            ids = p.ids.clone();
+            radii = new double[n];
+            rx = new double[n];
+            ry = new double[n];
+            rz = new double[n];
+            start = new int[n + 1];
+            next = new int[n];
+            head = new int[Math.max(16, Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1)];
+
+            for (int i = 0; i < n; i++) {
+                radii[i] = p.source(i).getRadius();
+            }
+        }
+
+        var largest = 0.0;
+        for (int i = 0; i < n; i++) {
+            largest = Math.max(largest, radii[i]);
+        }
+        final var cell = 2 * largest + skin;
+
+        // 1. Bucket every particle by its hashed cell
+        Arrays.fill(head, -1);
+        for (int i = 0; i < n; i++) {
+            rx[i] = p.x[i];
+            ry[i] = p.y[i];
+            rz[i] = p.z[i];
+
+            final var b = bucket(cell(rx[i], cell), cell(ry[i], cell), cell(rz[i], cell));
+            next[i] = head[b];
+            head[b] = i;
+        }
+
+        // 2. The pairs within reach, from the 27 cells around each particle
+        final var buckets = new int[NEIGHBOURS];
+        var size = 0;
+        for (int i = 0; i < n; i++) {
+            start[i] = size;
+
+            final var cx = cell(rx[i], cell);
+            final var cy = cell(ry[i], cell);
+            final var cz = cell(rz[i], cell);
+
+            // Different cells may share a bucket, visit each bucket once
+            var count = 0;
+            for (int ox = -1; ox <= 1; ox++) {
+                for (int oy = -1; oy <= 1; oy++) {
+                    for (int oz = -1; oz <= 1; oz++) {
+                        final var b = bucket(cx + ox, cy + oy, cz + oz);
+                        var seen = false;
+                        for (int k = 0; k < count && !seen; k++) {
+                            seen = buckets[k] == b;
+                        }
+                        if (!seen) {
+                            buckets[count++] = b;
+                        }
+                    }
+                }
+            }
+
+            for (int k = 0; k < count; k++) {
+                for (int j = head[buckets[k]]; j >= 0; j = next[j]) {
+                    if (j <= i) {
+                        continue;
+                    }
+
+                    final var dx = rx[i] - rx[j];
+                    final var dy = ry[i] - ry[j];
+                    final var dz = rz[i] - rz[j];
+                    final var reach = radii[i] + radii[j] + skin;
+                    if (dx * dx + dy * dy + dz * dz < reach * reach) {
+                        if (size == list.length) {
+                            list = Arrays.copyOf(list, Math.max(16, 2 * size));
+                        }
+                        list[size++] = j;
+                    }
+                }
+            }
+        }
+        start[n] = size;
+    }
+
+    private static long cell(final double position, final double cell) {
+        return (long) Math.floor(position / cell);
+    }
+
+    private int bucket(final long cx, final long cy, final long cz) {
+        final var h = cx * 73856093L ^ cy * 19349663L ^ cz * 83492791L;
+        return (int) (h ^ (h >>> 32)) & (head.length - 1);
+    }
+}
@@ -0,0 +1,298 @@
+package org.sims.galaxy;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+import org.sims.interfaces.PotentialForce;
+import org.sims.models.*;
+
+/**
+ * Galaxy observables, computed during the run and
+ * streamed to a compact binary time series.
+ *
+ * Every record holds the kinetic and potential energies,
+ * the center of mass and the half-mass radius, so the
+ * analysis doesn't have to reread every frame.
+ *
+ * All values are little-endian.
+ *
+ * <pre>
+ * header, 32 bytes
+ *   0  byte[4]  magic "TP4D"
+ *   4  int32    version
+ *   8  int32    N, the number of particles
+ *   12 int32    reserved, 0
+ *   16 float64  dt
+ *   24 int64    steps between records
+ * records, 56 bytes each
+ *   int64       step index
+ *   float64     kinetic energy
+ *   float64     potential energy
+ *   float64[3]  center of mass
+ *   float64     half-mass radius
+ * </pre>
+ *
+ * @apiNote Assumes G = 1 and m = 1, same as {@link Forces#gravity}.
+ */
+public class Diagnostics implements Closeable {
+    /**
+     * The observables of a step
+     *
+     * @param step           the step index
+     * @param kinetic        the kinetic energy
+     * @param potential      the potential energy
+     * @param center         the center of mass
+     * @param halfMassRadius the half-mass radius
+     */
+    public record Sample(long step, double kinetic, double potential, Vector3 center, double halfMassRadius) {
+    }
+
+    public static final int MAGIC = 0x44345054; // "TP4D" read as a little-endian int
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 32;
+    public static final int RECORD_BYTES = Long.BYTES + 6 * Double.BYTES;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Records kept in memory before writing them
+     */
+    private static final int BATCH = 256;
+
+    private final FileChannel channel;
+    private final ByteBuffer records;
+    private final PotentialForce force;
+    private final long interval;
+    private final double[] distances;
+
+    /**
+     * Create (or truncate) a diagnostics file
+     *
+     * @param path     the file path
+     * @param n        the number of particles
+     * @param dt       the integration time step
+     * @param interval the steps between records
+     * @param force    the force that computes the potential, such as the gravity row split
+     *                 and workers, null for an exact direct sum in the caller thread
+     * @throws IOException if the file cannot be written
+     */
+    public Diagnostics(final Path path, final int n, final double dt, final long interval, final PotentialForce force)
+            throws IOException {
+        this(FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                n, interval, force);
+
+        final var header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(n)
+                .putInt(0)
+                .putDouble(dt)
+                .putLong(interval);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private Diagnostics(final FileChannel channel, final int n, final long interval, final PotentialForce force) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive, got " + interval);
+        }
+
+        this.channel = channel;
+        this.interval = interval;
+        this.force = force;
+        this.distances = new double[n];
+        this.records = ByteBuffer.allocate(BATCH * RECORD_BYTES).order(ORDER);
+    }
+
+    /**
+     * Reopen a diagnostics file to keep appending records,
+     * discarding the ones at or after a step
+     *
+     * @param path     the file path
+     * @param n        the number of particles
+     * @param interval the steps between records
+     * @param force    see {@link #Diagnostics(Path, int, double, long, PotentialForce)}
+     * @param from     the first step of the resumed run
+     * @return the diagnostics, positioned after the kept records
+     * @throws IOException if the file cannot be written
+     */
+    public static Diagnostics resume(final Path path, final int n, final long interval, final PotentialForce force,
+            final long from) throws IOException {
+        final var channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        final var stored = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        final var kept = Math.min(stored, (from + interval - 1) / interval);
+        channel.truncate(HEADER_BYTES + kept * RECORD_BYTES);
+        channel.position(channel.size());
+
+        return new Diagnostics(channel, n, interval, force);
+    }
+
+    /**
+     * Whether a step is due for a record
+     *
+     * @param step the step index
+     * @return true every interval steps
+     */
+    public boolean due(final long step) {
+        return step % interval == 0;
+    }
+
+    /**
+     * Compute and queue the observables of a particles buffer
+     *
+     * @param step      the step index
+     * @param particles the particles state
+     * @return the computed observables
+     * @throws IOException if the previous records cannot be written
+     */
+    public Sample record(final long step, final ParticleBuffer particles) throws IOException {
+        final var n = particles.size();
+        if (n != distances.length) {
+            throw new IllegalArgumentException("Expected %d particles, got %d".formatted(distances.length, n));
+        }
+
+        double kinetic = 0, cx = 0, cy = 0, cz = 0;
+        for (int i = 0; i < n; i++) {
+            kinetic += particles.vx[i] * particles.vx[i] + particles.vy[i] * particles.vy[i] + particles.vz[i] * particles.vz[i];
+            cx += particles.x[i];
+            cy += particles.y[i];
+            cz += particles.z[i];
+        }
+        kinetic /= 2;
+        cx /= n;
+        cy /= n;
+        cz /= n;
+
+        for (int i = 0; i < n; i++) {
+            final var dx = particles.x[i] - cx;
+            final var dy = particles.y[i] - cy;
+            final var dz = particles.z[i] - cz;
+            distances[i] = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        }
+
+        final var potential = force != null
+                ? force.potential(particles)
+                : Forces.potential(particles.x, particles.y, particles.z, 0, n);
+
+        if (!records.hasRemaining()) {
+            drain();
+        }
+
+        final var sample = new Sample(step, kinetic, potential, new Vector3(cx, cy, cz), median(distances));
+        records.putLong(step)
+                .putDouble(kinetic)
+                .putDouble(potential)
+                .putDouble(cx)
+                .putDouble(cy)
+                .putDouble(cz)
+                .putDouble(sample.halfMassRadius());
+        return sample;
+    }
+
+    /**
+     * Compute and queue the observables of a collection of particles
+     *
+     * @param step      the step index
+     * @param particles the particles
+     * @return the computed observables
+     * @throws IOException if the previous records cannot be written
+     */
+    public Sample record(final long step, final Collection<Particle> particles) throws IOException {
+        return record(step, ParticleBuffer.of(particles));
+    }
+
+    /**
+     * The median, as the half-mass radius for equal masses
+     *
+     * @apiNote Reorders the values
+     *
+     * @param values the values
+     * @return the middle value, or the mean of the two middle ones
+     */
+    static double median(final double[] values) {
+        final var n = values.length;
+        if (n == 0) {
+            return 0;
+        }
+
+        final var half = n / 2;
+        final var upper = select(values, half);
+        if (n % 2 == 1) {
+            return upper;
+        }
+
+        // After the select, the lower middle is the maximum of the left side
+        var lower = values[0];
+        for (int i = 1; i < half; i++) {
+            lower = Math.max(lower, values[i]);
+        }
+        return (lower + upper) / 2;
+    }
+
+    /**
+     * Quickselect, leaves the k-th smallest value at k,
+     * smaller ones before it and larger ones after it
+     */
+    private static double select(final double[] a, final int k) {
+        int lo = 0, hi = a.length - 1;
+        while (lo < hi) {
+            final var pivot = a[lo + (hi - lo) / 2];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (a[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final var t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return a[k];
+    }
+
+    private void drain() throws IOException {
+        records.flip();
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+        records.clear();
+    }
+
+    /**
+     * Write the queued records to disk
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public void flush() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
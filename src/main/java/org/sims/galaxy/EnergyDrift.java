@@ -0,0 +1,68 @@
+package org.sims.galaxy;
+
+import java.util.Arrays;
+
+import org.sims.interfaces.StopCondition;
+
+/**
+ * Tracks the total energy of the diagnostics records,
+ * while another condition decides when to stop.
+ *
+ * The run sees it as its stop condition, so the drift is
+ * measured online, without reading diagnostics.bin back.
+ */
+public class EnergyDrift implements StopCondition<Diagnostics.Sample> {
+    private final StopCondition<? super Diagnostics.Sample> stop;
+
+    private double initial = Double.NaN;
+    private double last = Double.NaN;
+
+    /**
+     * @param stop the condition to delegate to
+     */
+    public EnergyDrift(final StopCondition<? super Diagnostics.Sample> stop) {
+        this.stop = stop;
+    }
+
+    @Override
+    public boolean done(final Diagnostics.Sample sample) {
+        final var energy = sample.kinetic() + sample.potential();
+        if (Double.isNaN(initial)) {
+            initial = energy;
+        }
+        last = energy;
+
+        return stop.done(sample);
+    }
+
+    /**
+     * The first and last energies, then the delegate's state
+     */
+    @Override
+    public double[] state() {
+        final var inner = stop.state();
+        final var state = Arrays.copyOf(new double[] { initial, last }, 2 + inner.length);
+        System.arraycopy(inner, 0, state, 2, inner.length);
+        return state;
+    }
+
+    @Override
+    public void restore(final double[] state) {
+        if (state.length < 2) {
+            return;
+        }
+
+        initial = state[0];
+        last = state[1];
+        stop.restore(Arrays.copyOfRange(state, 2, state.length));
+    }
+
+    /**
+     * The relative energy change, from the first to the last record
+     *
+     * @return (E - E0) / |E0|, NaN before any record
+     */
+    public double relative() {
+        return (last - initial) / Math.abs(initial);
+    }
+}
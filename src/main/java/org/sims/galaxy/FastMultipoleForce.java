@@ -0,0 +1,734 @@
+package org.sims.galaxy;
+
+import java.util.*;
+
+import org.sims.interfaces.BufferForce;
+import org.sims.interfaces.Force;
+import org.sims.interfaces.PotentialForce;
+import org.sims.models.Forces;
+import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
+import org.sims.models.Vector3;
+
+/**
+ * Fast multipole approximation of the softened gravity,
+ * with Cartesian Taylor expansions up to a configurable order.
+ *
+ * Particles are sorted into an adaptive octree whose leaves hold
+ * at most leaf particles. Every cell gets the multipole
+ * moments of its particles about its center of mass, built from
+ * the leaves upwards. A dual tree walk then pairs cells: two cells
+ * far enough apart, {@code (rA + rB) < theta * distance}, exchange
+ * local expansions in both directions, two close leaves are summed
+ * directly, otherwise the larger cell is opened. The local expansions
+ * are finally passed down to the leaves and evaluated at each particle.
+ *
+ * The expansions use the derivatives of the softened kernel
+ * {@code -1 / sqrt(r^2 + H^2)} itself, so the far field converges
+ * to the same softened sum as {@link GravityForce}.
+ *
+ * Every cell interacts with a bounded number of others, so a force
+ * evaluation is O(N) for a fixed order and opening angle, at
+ * O(order^6) per cell pair. The potential energy walks the same
+ * tree, with the local expansions themselves instead of their gradient.
+ *
+ * @apiNote Assumes G = 1 and m = 1, same as {@link Forces#gravity}.
+ * @apiNote Runs in the caller thread.
+ */
+public class FastMultipoleForce implements Force<Particle>, PotentialForce {
+    public static final int DEFAULT_ORDER = 4;
+    public static final double DEFAULT_THETA = 0.5;
+    public static final int DEFAULT_LEAF = 32;
+
+    /**
+     * Cells deeper than this are not split anymore,
+     * which protects against coincident particles.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private final int order;
+    private final double theta;
+    private final int leaf;
+
+    /**
+     * Multi-indices (nx, ny, nz) with nx + ny + nz <= order, by degree
+     */
+    private final int terms;
+    private final int[] nx, ny, nz, degree;
+    private final int[][][] index;
+    private final double[] sign;
+
+    /**
+     * Index pairs (k, n - k) for every n, to shift the multipoles to a parent
+     */
+    private final int[][] m2mFrom, m2mBy;
+
+    /**
+     * Index pairs (n, n - k) for every k, to shift the locals to a child
+     */
+    private final int[][] l2lFrom, l2lBy;
+
+    /**
+     * Index pairs (n, n + k) for every k, to turn multipoles into locals
+     */
+    private final int[][] m2lMoment, m2lDerivative;
+
+    /**
+     * Kernel derivative recursion, see {@link #derivatives}
+     */
+    private final int[] axis, previous, previous2, coefficient;
+
+    /**
+     * The terms k + e_x, k + e_y, k + e_z of the gradient, for |k| < order
+     */
+    private final int[] gradientX, gradientY, gradientZ;
+
+    /**
+     * Per evaluation state, the sorted particles and their accelerations
+     */
+    private int[] perm;
+    private double[] px, py, pz, pax, pay, paz;
+    private double[] kernel;
+
+    /**
+     * Whether the walk sums the potential instead of the accelerations,
+     * and the near (direct) and far (local expansion) sums
+     */
+    private boolean energy;
+    private double near, far;
+
+    /**
+     * @param order the expansion order, the highest multipole kept
+     * @param theta the opening angle
+     * @param leaf  the most particles of a cell that is not split, higher
+     *              orders pay off with larger leaves
+     */
+    public FastMultipoleForce(final int order, final double theta, final int leaf) {
+        if (order < 1 || order > 12) {
+            throw new IllegalArgumentException("order must be in [1, 12], got " + order);
+        }
+        if (theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("theta must be in (0, 1), got " + theta);
+        }
+        if (leaf < 1) {
+            throw new IllegalArgumentException("leaf must be positive, got " + leaf);
+        }
+
+        this.order = order;
+        this.theta = theta;
+        this.leaf = leaf;
+
+        this.terms = (order + 1) * (order + 2) * (order + 3) / 6;
+        this.nx = new int[terms];
+        this.ny = new int[terms];
+        this.nz = new int[terms];
+        this.degree = new int[terms];
+        this.index = new int[order + 1][order + 1][order + 1];
+        this.sign = new double[terms];
+
+        for (final var plane : index) {
+            for (final var row : plane) {
+                Arrays.fill(row, -1);
+            }
+        }
+
+        int t = 0;
+        for (int d = 0; d <= order; d++) {
+            for (int i = d; i >= 0; i--) {
+                for (int j = d - i; j >= 0; j--) {
+                    final var k = d - i - j;
+                    nx[t] = i;
+                    ny[t] = j;
+                    nz[t] = k;
+                    degree[t] = d;
+                    index[i][j][k] = t;
+                    sign[t] = d % 2 == 0 ? 1 : -1;
+                    t++;
+                }
+            }
+        }
+
+        this.m2mFrom = new int[terms][];
+        this.m2mBy = new int[terms][];
+        this.l2lFrom = new int[terms][];
+        this.l2lBy = new int[terms][];
+        this.m2lMoment = new int[terms][];
+        this.m2lDerivative = new int[terms][];
+
+        for (int n = 0; n < terms; n++) {
+            final var from = new ArrayList<Integer>();
+            final var by = new ArrayList<Integer>();
+            final var up = new ArrayList<Integer>();
+            final var upBy = new ArrayList<Integer>();
+            final var moment = new ArrayList<Integer>();
+            final var derivative = new ArrayList<Integer>();
+
+            for (int k = 0; k < terms; k++) {
+                // k <= n, for the multipoles of n
+                if (nx[k] <= nx[n] && ny[k] <= ny[n] && nz[k] <= nz[n]) {
+                    from.add(k);
+                    by.add(index[nx[n] - nx[k]][ny[n] - ny[k]][nz[n] - nz[k]]);
+                }
+                // k >= n, for the locals of n
+                if (nx[k] >= nx[n] && ny[k] >= ny[n] && nz[k] >= nz[n]) {
+                    up.add(k);
+                    upBy.add(index[nx[k] - nx[n]][ny[k] - ny[n]][nz[k] - nz[n]]);
+                }
+                // |k| + |n| <= order, the moments feeding the local n
+                if (degree[k] + degree[n] <= order) {
+                    moment.add(k);
+                    derivative.add(index[nx[k] + nx[n]][ny[k] + ny[n]][nz[k] + nz[n]]);
+                }
+            }
+
+            m2mFrom[n] = from.stream().mapToInt(Integer::intValue).toArray();
+            m2mBy[n] = by.stream().mapToInt(Integer::intValue).toArray();
+            l2lFrom[n] = up.stream().mapToInt(Integer::intValue).toArray();
+            l2lBy[n] = upBy.stream().mapToInt(Integer::intValue).toArray();
+            m2lMoment[n] = moment.stream().mapToInt(Integer::intValue).toArray();
+            m2lDerivative[n] = derivative.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        this.axis = new int[terms];
+        this.previous = new int[terms];
+        this.previous2 = new int[terms];
+        this.coefficient = new int[terms];
+        for (int n = 1; n < terms; n++) {
+            final var a = nx[n] > 0 ? 0 : ny[n] > 0 ? 1 : 2;
+            final var ux = nx[n] - (a == 0 ? 1 : 0);
+            final var uy = ny[n] - (a == 1 ? 1 : 0);
+            final var uz = nz[n] - (a == 2 ? 1 : 0);
+            final var u = new int[] { ux, uy, uz };
+
+            axis[n] = a;
+            previous[n] = index[ux][uy][uz];
+            coefficient[n] = u[a];
+            previous2[n] = u[a] > 0
+                    ? index[ux - (a == 0 ? 1 : 0)][uy - (a == 1 ? 1 : 0)][uz - (a == 2 ? 1 : 0)]
+                    : -1;
+        }
+
+        final var gradient = index(order - 1);
+        this.gradientX = new int[gradient];
+        this.gradientY = new int[gradient];
+        this.gradientZ = new int[gradient];
+        for (int k = 0; k < gradient; k++) {
+            gradientX[k] = index[nx[k] + 1][ny[k]][nz[k]];
+            gradientY[k] = index[nx[k]][ny[k] + 1][nz[k]];
+            gradientZ[k] = index[nx[k]][ny[k]][nz[k] + 1];
+        }
+
+        this.kernel = new double[(order + 1) * terms];
+    }
+
+    public FastMultipoleForce(final int order, final double theta) {
+        this(order, theta, DEFAULT_LEAF);
+    }
+
+    public FastMultipoleForce() {
+        this(DEFAULT_ORDER, DEFAULT_THETA, DEFAULT_LEAF);
+    }
+
+    public int order() {
+        return order;
+    }
+
+    public double theta() {
+        return theta;
+    }
+
+    public int leaf() {
+        return leaf;
+    }
+
+    /**
+     * The number of terms of degree up to d
+     */
+    private static int index(final int d) {
+        return (d + 1) * (d + 2) * (d + 3) / 6;
+    }
+
+    @Override
+    public Map<Particle, Vector3> apply(final Collection<Particle> particles) {
+        return BufferForce.map(this, particles);
+    }
+
+    @Override
+    public void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        final var n = particles.size();
+        if (n == 0) {
+            return;
+        }
+
+        evaluate(particles);
+
+        for (int s = 0; s < n; s++) {
+            final var i = perm[s];
+            ax[i] = pax[s];
+            ay[i] = pay[s];
+            az[i] = paz[s];
+        }
+    }
+
+    /**
+     * The potential energy, from the same walk as the force:
+     * the close pairs summed directly, the others through the
+     * local expansions, which see every far pair from both sides
+     */
+    @Override
+    public double potential(final ParticleBuffer particles) {
+        if (particles.size() == 0) {
+            return 0;
+        }
+
+        energy = true;
+        near = 0;
+        far = 0;
+        try {
+            evaluate(particles);
+        } finally {
+            energy = false;
+        }
+        return near + far / 2;
+    }
+
+    /**
+     * Walk the tree over the particles, into the sorted planes
+     */
+    private void evaluate(final ParticleBuffer particles) {
+        final var n = particles.size();
+        if (perm == null || perm.length != n) {
+            perm = new int[n];
+            px = new double[n];
+            py = new double[n];
+            pz = new double[n];
+            pax = new double[n];
+            pay = new double[n];
+            paz = new double[n];
+        }
+
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        Arrays.fill(pax, 0);
+        Arrays.fill(pay, 0);
+        Arrays.fill(paz, 0);
+
+        // 1. Tree and multipoles, the particles end up sorted by cell
+        final var root = build(particles, new int[n], 0, n, bounds(particles), 0);
+
+        // 2. Cell-cell interactions
+        self(root);
+
+        // 3. Locals down to the particles
+        down(root);
+    }
+
+    /**
+     * An octree cell, over the sorted particles [begin, end)
+     */
+    private final class Node {
+        private final int begin, end;
+        private final double cx, cy, cz;
+        private final double[] multipoles = new double[terms];
+        private final double[] locals = new double[terms];
+        private Node[] children;
+        private double radius;
+
+        private Node(final int begin, final int end, final double cx, final double cy, final double cz) {
+            this.begin = begin;
+            this.end = end;
+            this.cx = cx;
+            this.cy = cy;
+            this.cz = cz;
+        }
+
+        private boolean leaf() {
+            return children == null;
+        }
+    }
+
+    /**
+     * The cubic box enclosing every particle, as center and half size
+     */
+    private static double[] bounds(final ParticleBuffer p) {
+        double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+
+        for (int i = 0; i < p.size(); i++) {
+            minX = Math.min(minX, p.x[i]);
+            minY = Math.min(minY, p.y[i]);
+            minZ = Math.min(minZ, p.z[i]);
+            maxX = Math.max(maxX, p.x[i]);
+            maxY = Math.max(maxY, p.y[i]);
+            maxZ = Math.max(maxZ, p.z[i]);
+        }
+
+        final var half = Math.max(Math.max(maxX - minX, maxY - minY), Math.max(maxZ - minZ, Double.MIN_NORMAL)) / 2;
+        return new double[] { (minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, half * (1 + 1e-9) };
+    }
+
+    /**
+     * Sort [begin, end) of perm into octants, and build the cell with its multipoles
+     *
+     * @param box the cell box, as center and half size
+     */
+    private Node build(final ParticleBuffer p, final int[] scratch, final int begin, final int end,
+            final double[] box, final int depth) {
+        double mx = 0, my = 0, mz = 0;
+        for (int s = begin; s < end; s++) {
+            final var i = perm[s];
+            mx += p.x[i];
+            my += p.y[i];
+            mz += p.z[i];
+        }
+        final var count = end - begin;
+        final var node = new Node(begin, end, mx / count, my / count, mz / count);
+
+        if (count <= leaf || depth >= MAX_DEPTH) {
+            leaf(p, node);
+            return node;
+        }
+
+        // Counting sort by octant
+        final var offsets = new int[9];
+        for (int s = begin; s < end; s++) {
+            offsets[octant(p, perm[s], box) + 1]++;
+        }
+        for (int o = 0; o < 8; o++) {
+            offsets[o + 1] += offsets[o];
+        }
+        final var cursor = Arrays.copyOf(offsets, 8);
+        for (int s = begin; s < end; s++) {
+            final var i = perm[s];
+            scratch[begin + cursor[octant(p, i, box)]++] = i;
+        }
+        System.arraycopy(scratch, begin, perm, begin, count);
+
+        final var children = new ArrayList<Node>(8);
+        final var q = box[3] / 2;
+        for (int o = 0; o < 8; o++) {
+            if (offsets[o] == offsets[o + 1]) {
+                continue;
+            }
+
+            final var child = new double[] {
+                    box[0] + ((o & 1) != 0 ? q : -q),
+                    box[1] + ((o & 2) != 0 ? q : -q),
+                    box[2] + ((o & 4) != 0 ? q : -q),
+                    q };
+            children.add(build(p, scratch, begin + offsets[o], begin + offsets[o + 1], child, depth + 1));
+        }
+        node.children = children.toArray(Node[]::new);
+
+        // M2M, shift every child's moments to this center
+        final var powers = new double[terms];
+        for (final var c : node.children) {
+            monomials(c.cx - node.cx, c.cy - node.cy, c.cz - node.cz, powers);
+            for (int n = 0; n < terms; n++) {
+                final var from = m2mFrom[n];
+                final var by = m2mBy[n];
+                var sum = 0.0;
+                for (int j = 0; j < from.length; j++) {
+                    sum += c.multipoles[from[j]] * powers[by[j]];
+                }
+                node.multipoles[n] += sum;
+            }
+
+        }
+
+        // The exact extent, the children are already gathered
+        var r2 = 0.0;
+        for (int s = begin; s < end; s++) {
+            final var dx = px[s] - node.cx;
+            final var dy = py[s] - node.cy;
+            final var dz = pz[s] - node.cz;
+            r2 = Math.max(r2, dx * dx + dy * dy + dz * dz);
+        }
+        node.radius = Math.sqrt(r2);
+
+        return node;
+    }
+
+    private static int octant(final ParticleBuffer p, final int i, final double[] box) {
+        return (p.x[i] >= box[0] ? 1 : 0) | (p.y[i] >= box[1] ? 2 : 0) | (p.z[i] >= box[2] ? 4 : 0);
+    }
+
+    /**
+     * Gather the leaf particles in sorted order, and compute their moments (P2M)
+     */
+    private void leaf(final ParticleBuffer p, final Node node) {
+        final var powers = new double[terms];
+        for (int s = node.begin; s < node.end; s++) {
+            final var i = perm[s];
+            px[s] = p.x[i];
+            py[s] = p.y[i];
+            pz[s] = p.z[i];
+
+            final var dx = px[s] - node.cx;
+            final var dy = py[s] - node.cy;
+            final var dz = pz[s] - node.cz;
+            node.radius = Math.max(node.radius, Math.sqrt(dx * dx + dy * dy + dz * dz));
+
+            monomials(dx, dy, dz, powers);
+            for (int n = 0; n < terms; n++) {
+                node.multipoles[n] += powers[n];
+            }
+        }
+    }
+
+    /**
+     * d^n / n! for every multi-index n
+     */
+    private void monomials(final double dx, final double dy, final double dz, final double[] out) {
+        out[0] = 1;
+        for (int n = 1; n < terms; n++) {
+            // d^n / n! = d^u / u! * d_a / n_a, with u = n - e_a
+            final var d = axis[n] == 0 ? dx : axis[n] == 1 ? dy : dz;
+            out[n] = out[previous[n]] * d / (coefficient[n] + 1);
+        }
+    }
+
+    /**
+     * Every interaction within a cell
+     */
+    private void self(final Node a) {
+        if (a.leaf()) {
+            direct(a);
+            return;
+        }
+
+        final var c = a.children;
+        for (int i = 0; i < c.length; i++) {
+            self(c[i]);
+            for (int j = i + 1; j < c.length; j++) {
+                interact(c[i], c[j]);
+            }
+        }
+    }
+
+    /**
+     * Every interaction between two disjoint cells
+     */
+    private void interact(final Node a, final Node b) {
+        final var dx = b.cx - a.cx;
+        final var dy = b.cy - a.cy;
+        final var dz = b.cz - a.cz;
+        final var r = a.radius + b.radius;
+
+        if (r * r < theta * theta * (dx * dx + dy * dy + dz * dz)) {
+            translate(a, b, dx, dy, dz);
+            return;
+        }
+
+        if (a.leaf() && b.leaf()) {
+            direct(a, b);
+            return;
+        }
+
+        if (b.leaf() || (!a.leaf() && a.radius >= b.radius)) {
+            for (final var c : a.children) {
+                interact(c, b);
+            }
+        } else {
+            for (final var c : b.children) {
+                interact(a, c);
+            }
+        }
+    }
+
+    /**
+     * M2L both ways, between cells a vector (dx, dy, dz) = b - a apart
+     */
+    private void translate(final Node a, final Node b, final double dx, final double dy, final double dz) {
+        derivatives(dx, dy, dz);
+
+        for (int k = 0; k < terms; k++) {
+            final var moment = m2lMoment[k];
+            final var derivative = m2lDerivative[k];
+
+            // Into b: sum (-1)^|n| M_a[n] D[n + k](b - a)
+            // Into a: D(a - b) = (-1)^|m| D(b - a), so sum (-1)^|k| M_b[n] D[n + k](b - a)
+            double toB = 0, toA = 0;
+            for (int j = 0; j < moment.length; j++) {
+                final var n = moment[j];
+                final var d = kernel[derivative[j]];
+                toB += sign[n] * a.multipoles[n] * d;
+                toA += b.multipoles[n] * d;
+            }
+
+            b.locals[k] += toB;
+            a.locals[k] += sign[k] * toA;
+        }
+    }
+
+    /**
+     * The derivatives D[n] = d^n/dr^n of -1 / sqrt(r^2 + H^2), into kernel[0, terms).
+     *
+     * The kernel is a function of s = r^2 / 2, whose m-th derivative is
+     * f_m = -(-1)^m (2m - 1)!! (r^2 + H^2)^-(2m + 1)/2, and
+     * d/dx f_m(s) = x f_{m+1}(s). So by Leibniz, the derivatives
+     * D_m[n] of f_m follow D_m[u + e_a] = r_a D_{m+1}[u] + u_a D_{m+1}[u - e_a],
+     * filled by increasing degree, with m <= order - |n|.
+     */
+    private void derivatives(final double dx, final double dy, final double dz) {
+        final var r2 = dx * dx + dy * dy + dz * dz + Forces.H * Forces.H;
+        final var inv = 1 / r2;
+
+        // f_m at n = 0, into kernel[m * terms]
+        var f = -Math.sqrt(inv);
+        for (int m = 0; m <= order; m++) {
+            kernel[m * terms] = f;
+            f *= -(2 * m + 1) * inv;
+        }
+
+        for (int n = 1; n < terms; n++) {
+            final var r = axis[n] == 0 ? dx : axis[n] == 1 ? dy : dz;
+            final var u = previous[n];
+            final var v = previous2[n];
+            final var c = coefficient[n];
+
+            for (int m = 0; m <= order - degree[n]; m++) {
+                final var next = (m + 1) * terms;
+                var d = r * kernel[next + u];
+                if (v >= 0) {
+                    d += c * kernel[next + v];
+                }
+                kernel[m * terms + n] = d;
+            }
+        }
+    }
+
+    /**
+     * Direct sum within a leaf
+     */
+    private void direct(final Node a) {
+        final var h2 = Forces.H * Forces.H;
+        if (energy) {
+            for (int i = a.begin; i < a.end; i++) {
+                for (int j = i + 1; j < a.end; j++) {
+                    near -= pair(i, j, h2);
+                }
+            }
+            return;
+        }
+
+        for (int i = a.begin; i < a.end; i++) {
+            double sx = 0, sy = 0, sz = 0;
+            for (int j = i + 1; j < a.end; j++) {
+                final var dx = px[i] - px[j];
+                final var dy = py[i] - py[j];
+                final var dz = pz[i] - pz[j];
+                final var r2 = dx * dx + dy * dy + dz * dz + h2;
+                final var inv = 1.0 / (r2 * Math.sqrt(r2));
+
+                sx -= dx * inv;
+                sy -= dy * inv;
+                sz -= dz * inv;
+                pax[j] += dx * inv;
+                pay[j] += dy * inv;
+                paz[j] += dz * inv;
+            }
+            pax[i] += sx;
+            pay[i] += sy;
+            paz[i] += sz;
+        }
+    }
+
+    /**
+     * Direct sum between two leaves
+     */
+    private void direct(final Node a, final Node b) {
+        final var h2 = Forces.H * Forces.H;
+        if (energy) {
+            for (int i = a.begin; i < a.end; i++) {
+                for (int j = b.begin; j < b.end; j++) {
+                    near -= pair(i, j, h2);
+                }
+            }
+            return;
+        }
+
+        for (int i = a.begin; i < a.end; i++) {
+            double sx = 0, sy = 0, sz = 0;
+            for (int j = b.begin; j < b.end; j++) {
+                final var dx = px[i] - px[j];
+                final var dy = py[i] - py[j];
+                final var dz = pz[i] - pz[j];
+                final var r2 = dx * dx + dy * dy + dz * dz + h2;
+                final var inv = 1.0 / (r2 * Math.sqrt(r2));
+
+                sx -= dx * inv;
+                sy -= dy * inv;
+                sz -= dz * inv;
+                pax[j] += dx * inv;
+                pay[j] += dy * inv;
+                paz[j] += dz * inv;
+            }
+            pax[i] += sx;
+            pay[i] += sy;
+            paz[i] += sz;
+        }
+    }
+
+    /**
+     * 1 / sqrt(r^2 + H^2) between two sorted slots
+     */
+    private double pair(final int i, final int j, final double h2) {
+        final var dx = px[i] - px[j];
+        final var dy = py[i] - py[j];
+        final var dz = pz[i] - pz[j];
+        return 1.0 / Math.sqrt(dx * dx + dy * dy + dz * dz + h2);
+    }
+
+    /**
+     * L2L into the children, and L2P at the leaves
+     */
+    private void down(final Node node) {
+        final var powers = new double[terms];
+
+        if (node.leaf()) {
+            if (energy) {
+                // phi = sum L[k] d^k / k!
+                for (int s = node.begin; s < node.end; s++) {
+                    monomials(px[s] - node.cx, py[s] - node.cy, pz[s] - node.cz, powers);
+                    for (int k = 0; k < terms; k++) {
+                        far += node.locals[k] * powers[k];
+                    }
+                }
+                return;
+            }
+
+            final var gradient = gradientX.length;
+            for (int s = node.begin; s < node.end; s++) {
+                monomials(px[s] - node.cx, py[s] - node.cy, pz[s] - node.cz, powers);
+
+                // a = -grad phi = -sum L[k + e] d^k / k!
+                double gx = 0, gy = 0, gz = 0;
+                for (int k = 0; k < gradient; k++) {
+                    gx += node.locals[gradientX[k]] * powers[k];
+                    gy += node.locals[gradientY[k]] * powers[k];
+                    gz += node.locals[gradientZ[k]] * powers[k];
+                }
+                pax[s] -= gx;
+                pay[s] -= gy;
+                paz[s] -= gz;
+            }
+            return;
+        }
+
+        for (final var c : node.children) {
+            monomials(c.cx - node.cx, c.cy - node.cy, c.cz - node.cz, powers);
+            for (int k = 0; k < terms; k++) {
+                final var from = l2lFrom[k];
+                final var by = l2lBy[k];
+                var sum = 0.0;
+                for (int j = 0; j < from.length; j++) {
+                    sum += node.locals[from[j]] * powers[by[j]];
+                }
+                c.locals[k] += sum;
+            }
+            down(c);
+        }
+    }
+}
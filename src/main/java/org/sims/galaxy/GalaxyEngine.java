@@ -1,20 +1,120 @@
 package org.sims.galaxy;
 
+import java.io.*;
 import java.util.*;
 
-import org.sims.interfaces.Engine;
+import org.sims.integrals.BeemanIntegrator;
+import org.sims.interfaces.*;
+import org.sims.models.*;
+import org.sims.trajectory.Checkpoint;
+import org.sims.trajectory.SnapshotWriter;
 
-public record GalaxyEngine(GalaxySimulation simulation) implements Engine<GalaxyStep> {
+/**
+ * Runs a galaxy simulation, owning the integrator state.
+ *
+ * Integrators with an array-based path step a {@link ParticleBuffer} in place,
+ * so the particles are only materialized when a step asks for them.
+ * The others step the particles list.
+ *
+ * Every step is the state after i integrations, and shares the
+ * engine's state, see {@link GalaxyStep} and {@link #cursor()}.
+ */
+public class GalaxyEngine implements Engine<GalaxyStep> {
+    private final GalaxySimulation simulation;
+    private final BufferIntegrator buffered;
+    private final ParticleBuffer buffer;
+    private List<Particle> particles;
+    private long current;
+
+    public GalaxyEngine(final GalaxySimulation simulation) {
+        this(simulation, null);
+    }
+
+    /**
+     * Resume a simulation
+     *
+     * @param simulation the simulation, built from the same checkpoint
+     * @param checkpoint the state to resume from, or null for a new run
+     */
+    public GalaxyEngine(final GalaxySimulation simulation, final Checkpoint checkpoint) {
+        this.simulation = simulation;
+        this.particles = simulation.entities();
+        this.current = checkpoint != null ? checkpoint.step() : 0;
+        this.buffered = simulation.integrator() instanceof BufferIntegrator b ? b : null;
+        this.buffer = buffered != null ? ParticleBuffer.of(particles) : null;
+
+        if (buffered == null) {
+            return;
+        }
+
+        if (checkpoint == null) {
+            buffered.prepare(buffer);
+            return;
+        }
+
+        for (int i = 0; i < buffer.size(); i++) {
+            final var a = checkpoint.accelerations().get(i);
+            buffer.ax[i] = a.x();
+            buffer.ay[i] = a.y();
+            buffer.az[i] = a.z();
+        }
+    }
+
+    public GalaxySimulation simulation() {
+        return simulation;
+    }
+
+    /**
+     * Capture the full integrator state, as of the last step
+     *
+     * @return the checkpoint, to resume from the next step
+     */
+    public Checkpoint checkpoint() {
+        final var integrator = simulation.integrator();
+        if (buffer != null) {
+            return Checkpoint.of(current, integrator.name(), simulation.dt(), buffer);
+        }
+
+        final List<Vector3> acc = integrator instanceof BeemanIntegrator beeman
+                ? particles.stream().map(beeman.acc()::get).toList()
+                : particles.stream().map(p -> Vector3.ZERO).toList();
+
+        return new Checkpoint(current, Particle.serial(), integrator.name(), simulation.dt(), particles, acc);
+    }
+
+    /**
+     * A copy of the current state, safe to save while the engine moves on
+     *
+     * @return the step, the initial state until the first integration
+     */
     @Override
     public GalaxyStep initial() {
-        return new GalaxyStep(0);
+        return new GalaxyStep(current, null, buffer != null ? buffer.toParticles() : particles);
+    }
+
+    /**
+     * The particles buffer, stepped in place
+     *
+     * @return the buffer, or null on the collection path
+     */
+    public ParticleBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * The particles, on the collection path
+     *
+     * @return the current particles, or the initial ones on the buffer path
+     */
+    public List<Particle> particles() {
+        return particles;
     }
 
     @Override
     public Iterator<GalaxyStep> iterator() {
-        return new Iterator<>() {
-            private long current = 0;
+        final var cursor = cursor();
 
+        return new Iterator<>() {
             @Override
             public boolean hasNext() {
                 return current < simulation.steps();
@@ -22,12 +122,70 @@ public record GalaxyEngine(GalaxySimulation simulation) implements Engine<Galaxy
 
             @Override
             public GalaxyStep next() {
-                return new GalaxyStep(++current);
+                if (!cursor.advance()) {
+                    throw new NoSuchElementException();
+                }
+                return cursor.step();
+            }
+        };
+    }
+
+    /**
+     * Steps the state in place, the {@link GalaxyStep} is only
+     * built, as a copy, when asked for, and snapshots copy the buffer planes.
+     */
+    @Override
+    public Cursor<GalaxyStep> cursor() {
+        return new Cursor<>() {
+            @Override
+            public boolean advance() {
+                if (current >= simulation.steps()) {
+                    return false;
+                }
+
+                if (buffered != null) {
+                    buffered.step(buffer);
+                } else {
+                    particles = simulation.integrator().step(particles);
+                }
+                current++;
+                return true;
+            }
+
+            @Override
+            public GalaxyStep step() {
+                return initial();
+            }
+
+            @Override
+            public long i() {
+                return current;
+            }
+
+            @Override
+            public void saveTo(final Writer writer) throws IOException {
+                step().saveTo(writer);
+            }
+
+            @Override
+            public List<Particle> particles() {
+                return buffer != null ? buffer.toParticles() : particles;
+            }
+
+            @Override
+            public boolean snapshot(final SnapshotWriter snapshots) throws IOException {
+                return buffer != null ? snapshots.submit(current, buffer) : snapshots.submit(current, particles);
             }
         };
     }
 
+    /**
+     * Close the force, such as the gravity workers
+     */
     @Override
     public void close() throws Exception {
+        if (simulation.force() instanceof AutoCloseable force) {
+            force.close();
+        }
     }
 }
@@ -1,24 +1,125 @@
 package org.sims.galaxy;
 
 import java.io.*;
-import java.util.List;
+import java.util.*;
 
+import org.sims.integrals.*;
 import org.sims.interfaces.*;
 import org.sims.models.*;
+import org.sims.trajectory.Checkpoint;
 
-public record GalaxySimulation(long steps, List<Particle> entities, Integrator<Particle> integrator)
+/**
+ * A galaxy run: its particles, the force between them, and the integrator moving them.
+ *
+ * @param steps          the number of steps to simulate
+ * @param dt             the time step
+ * @param entities       the initial particles, with the memories the integrator needs
+ * @param force          the force between the particles
+ * @param integrator     the integrator
+ * @param integratorName the integrator name saved in setup.txt
+ */
+public record GalaxySimulation(long steps, double dt, List<Particle> entities, Force<Particle> force,
+        Integrator<Particle> integrator, String integratorName)
         implements Simulation<Particle, GalaxyStep> {
+    public static final String METHODS = "gearposition, gearvelocity, verlet, velocityverlet, beeman, hermite";
+
+    /**
+     * Build a simulation, initializing the particles for the integrator
+     *
+     * @param steps     the number of steps to simulate
+     * @param dt        the time step
+     * @param particles the initial particles
+     * @param force     the force between the particles
+     * @param method    one of {@link #METHODS}
+     * @param eta       the accuracy of the hermite block steps
+     * @param levels    the number of step halvings of the hermite block steps
+     * @return the built simulation
+     */
+    public static GalaxySimulation build(final long steps, final double dt, final List<Particle> particles,
+            final Force<Particle> force, final String method, final double eta, final int levels) {
+        return build(steps, dt, particles, force, method, eta, levels, null);
+    }
+
     /**
-     * Build a simulation
+     * Build a simulation, resuming it from a checkpoint if given
      *
+     * @param steps      the number of steps to simulate
+     * @param dt         the time step
+     * @param particles  the initial particles, ignored when resuming
+     * @param force      the force between the particles
+     * @param method     one of {@link #METHODS}
+     * @param eta        the accuracy of the hermite block steps
+     * @param levels     the number of step halvings of the hermite block steps
+     * @param checkpoint the state to resume from, or null for a new run
      * @return the built simulation
      */
-    public static GalaxySimulation build(final long steps) {
-        return new GalaxySimulation(steps, List.of(), null);
+    public static GalaxySimulation build(final long steps, final double dt, final List<Particle> particles,
+            final Force<Particle> force, final String method, final double eta, final int levels,
+            final Checkpoint checkpoint) {
+        final var entities = checkpoint != null ? checkpoint.particles() : particles;
+
+        final var name = integratorName(method);
+        final Integrator<Particle> integrator;
+        switch (method) {
+            case "gearposition", "gearvelocity" -> {
+                integrator = new GearIntegrator(dt, force,
+                        method.equals("gearposition") ? GearType.POSITION : GearType.VELOCITY);
+                if (checkpoint == null) {
+                    entities.forEach(p -> p.setDerivatives(p.initializeGearGravityDerivatives(p.getPosition(), p.getVelocity())));
+                }
+            }
+            case "verlet" -> {
+                integrator = new Verlet(dt, force);
+            }
+            case "velocityverlet" -> {
+                integrator = new VelocityVerlet(dt, force);
+            }
+            case "beeman" -> {
+                if (checkpoint == null) {
+                    integrator = new BeemanIntegrator(dt, force, entities);
+                } else {
+                    final Map<Particle, Vector3> acc = new HashMap<>();
+                    for (int i = 0; i < entities.size(); i++) {
+                        acc.put(entities.get(i), checkpoint.accelerations().get(i));
+                    }
+                    integrator = new BeemanIntegrator(dt, force, acc);
+                }
+            }
+            case "hermite" -> {
+                integrator = new BlockHermite(dt, force, eta, levels);
+            }
+            default -> throw new IllegalArgumentException("Unknown integration method: " + method
+                    + ", available methods: " + METHODS);
+        }
+
+        if (checkpoint != null && (!checkpoint.integrator().equals(integrator.name()) || checkpoint.dt() != dt)) {
+            throw new IllegalStateException("Checkpoint is for %s with dt=%s, not %s with dt=%s"
+                    .formatted(checkpoint.integrator(), checkpoint.dt(), integrator.name(), dt));
+        }
+
+        return new GalaxySimulation(steps, dt, entities, force, integrator, name);
+    }
+
+    /**
+     * The integrator name saved in setup.txt, which the analysis groups runs by
+     *
+     * @param method one of {@link #METHODS}
+     * @return the name
+     */
+    public static String integratorName(final String method) {
+        return switch (method) {
+            case "gearposition", "gearvelocity" -> "Gear5";
+            case "verlet" -> "VerletGravity";
+            case "velocityverlet" -> "VelocityVerletGravity";
+            case "beeman" -> "BeemanGravity";
+            case "hermite" -> "BlockHermite";
+            default -> throw new IllegalArgumentException("Unknown integration method: " + method
+                    + ", available methods: " + METHODS);
+        };
     }
 
     @Override
     public void saveTo(final Writer writer) throws IOException {
-        writer.write("%d\n".formatted(steps));
+        writer.write(String.format(Locale.US, "%d %.14f %s\n", steps, dt, integratorName));
     }
 }
@@ -1,18 +1,45 @@
 package org.sims.galaxy;
 
 import java.io.*;
+import java.util.*;
 
 import org.sims.interfaces.Step;
+import org.sims.models.*;
+import org.sims.trajectory.SnapshotWriter;
 
 /**
  * A step in the simulation
  *
- * @param i the step index
+ * @apiNote A step over a buffer is a live view, the state moves on
+ * with whoever steps the buffer, so it must be saved or observed
+ * before the next step. {@link GalaxyEngine} hands out copies.
+ *
+ * @param i        the step index
+ * @param buffer   the particles, on the buffer path, or null
+ * @param entities the particles, on the collection path, or null
  */
-public record GalaxyStep(long i) implements Step {
+public record GalaxyStep(long i, ParticleBuffer buffer, List<Particle> entities) implements Step {
     @Override
     public void saveTo(final Writer writer) throws IOException {
-        writer.write(Long.toString(i));
-        writer.write('\n');
+        for (final var p : particles()) {
+            writer.write(p.toString());
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Copies the particles out of the buffer, if any
+     */
+    @Override
+    public List<Particle> particles() {
+        return buffer != null ? buffer.toParticles() : entities;
+    }
+
+    /**
+     * Copies the buffer planes straight into the snapshot
+     */
+    @Override
+    public boolean snapshot(final SnapshotWriter snapshots) throws IOException {
+        return buffer != null ? snapshots.submit(i, buffer) : snapshots.submit(i, entities);
     }
 }
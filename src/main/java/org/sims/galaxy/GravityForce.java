@@ -1,32 +1,305 @@
 package org.sims.galaxy;
 
+import org.sims.interfaces.BufferForce;
 import org.sims.interfaces.Force;
+import org.sims.interfaces.JerkForce;
+import org.sims.interfaces.PotentialForce;
 import org.sims.models.Forces;
 import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
 import org.sims.models.Vector3;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
-public class GravityForce implements Force<Particle> {
+/**
+ * Exact softened gravity by direct summation.
+ *
+ * Each pair is visited once, see {@link Forces#gravity(double[], double[], double[], double[], double[], double[], int, int)}.
+ *
+ * With more than one thread, the i < j triangle is split in
+ * contiguous row blocks of about the same number of pairs.
+ * Every worker accumulates into its own planes, which are then
+ * summed in worker order, so a fixed thread count always
+ * yields the same bits.
+ *
+ * The acceleration and jerk of a subset, used by block time steps,
+ * is split in contiguous chunks of the active slots instead.
+ *
+ * The pair loop can optionally run on the Vector API, see {@link VectorGravity}.
+ * It falls back to the scalar kernel when the JVM was not started with
+ * {@code --add-modules jdk.incubator.vector}.
+ *
+ * @apiNote The parallel mode keeps 3 * threads * N doubles of accumulators,
+ * and its workers until {@link #close()}.
+ */
+public class GravityForce implements Force<Particle>, JerkForce, PotentialForce, AutoCloseable {
+    /**
+     * Whether the Vector API module is present in the boot layer
+     */
+    public static final boolean SIMD_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final int threads;
+    private final boolean simd;
+    private ForkJoinPool pool;
+    private double[][] partials;
+
+    public GravityForce() {
+        this(1);
+    }
+
+    /**
+     * @param threads the number of workers, 1 runs in the caller thread
+     */
+    public GravityForce(final int threads) {
+        this(threads, false);
+    }
+
+    /**
+     * @param threads the number of workers, 1 runs in the caller thread
+     * @param simd    whether to use the Vector API kernel, when available
+     */
+    public GravityForce(final int threads, final boolean simd) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive, got " + threads);
+        }
+
+        this.threads = threads;
+        this.simd = simd && SIMD_AVAILABLE;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * Whether the Vector API kernel is in use
+     *
+     * @return true if it was requested and is available
+     */
+    public boolean simd() {
+        return simd;
+    }
 
-    //TODO se puede optimizar pasando 1 vez por dupla de particulas?
     @Override
     public Map<Particle, Vector3> apply(Collection<Particle> particles) {
+        return BufferForce.map(this, particles);
+    }
+
+    @Override
+    public void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        if (threads == 1 || particles.size() < 2 * threads) {
+            Arrays.fill(ax, 0);
+            Arrays.fill(ay, 0);
+            Arrays.fill(az, 0);
+
+            kernel(particles, ax, ay, az, 0, particles.size());
+            return;
+        }
+
+        parallel(particles, ax, ay, az);
+    }
+
+    @Override
+    public void apply(final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz,
+            final int[] active, final int count,
+            final double[] ax, final double[] ay, final double[] az,
+            final double[] jx, final double[] jy, final double[] jz) {
+        if (threads == 1 || count < 2 * threads) {
+            Forces.gravity(x, y, z, vx, vy, vz, active, 0, count, ax, ay, az, jx, jy, jz);
+            return;
+        }
+
+        jerks(x, y, z, vx, vy, vz, active, count, ax, ay, az, jx, jy, jz);
+    }
+
+    private synchronized void jerks(final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz,
+            final int[] active, final int count,
+            final double[] ax, final double[] ay, final double[] az,
+            final double[] jx, final double[] jy, final double[] jz) {
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+
+        // Every active row costs the same, each worker writes its own slots
+        final var tasks = new ArrayList<Callable<Void>>(threads);
+        for (int w = 0; w < threads; w++) {
+            final var from = (int) ((long) count * w / threads);
+            final var to = (int) ((long) count * (w + 1) / threads);
+
+            tasks.add(() -> {
+                Forces.gravity(x, y, z, vx, vy, vz, active, from, to, ax, ay, az, jx, jy, jz);
+                return null;
+            });
+        }
+        join(tasks);
+    }
+
+    /**
+     * The softened potential energy of the buffer,
+     * split over the same row blocks as the force
+     *
+     * @param particles the particles
+     * @return the total potential energy
+     */
+    @Override
+    public double potential(final ParticleBuffer particles) {
+        final var n = particles.size();
+        if (threads == 1 || n < 2 * threads) {
+            return Forces.potential(particles.x, particles.y, particles.z, 0, n);
+        }
+
+        return potentials(particles);
+    }
+
+    private synchronized double potentials(final ParticleBuffer particles) {
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+
+        final var rows = rows(particles.size());
+        final var sums = new double[threads];
+        final var tasks = new ArrayList<Callable<Void>>(threads);
+        for (int w = 0; w < threads; w++) {
+            final var worker = w;
+            tasks.add(() -> {
+                sums[worker] = Forces.potential(particles.x, particles.y, particles.z, rows[worker], rows[worker + 1]);
+                return null;
+            });
+        }
+        join(tasks);
+
+        // Worker order, same as the force reduction
+        double e = 0;
+        for (final var sum : sums) {
+            e += sum;
+        }
+        return e;
+    }
+
+    private synchronized void parallel(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        final var n = particles.size();
+
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+
+        if (partials == null || partials[0].length != n) {
+            partials = new double[3 * threads][n];
+        }
+
+        final var rows = rows(n);
+        final var tasks = new ArrayList<Callable<Void>>(threads);
+
+        // 1. Each worker sums its row block into its own planes
+        for (int w = 0; w < threads; w++) {
+            final var px = partials[3 * w];
+            final var py = partials[3 * w + 1];
+            final var pz = partials[3 * w + 2];
+            final var from = rows[w];
+            final var to = rows[w + 1];
+
+            tasks.add(() -> {
+                Arrays.fill(px, 0);
+                Arrays.fill(py, 0);
+                Arrays.fill(pz, 0);
+                kernel(particles, px, py, pz, from, to);
+                return null;
+            });
+        }
+        join(tasks);
+
+        // 2. Reduce slot chunks, always adding workers in the same order
+        tasks.clear();
+        for (int c = 0; c < threads; c++) {
+            final var from = (int) ((long) n * c / threads);
+            final var to = (int) ((long) n * (c + 1) / threads);
+
+            tasks.add(() -> {
+                reduce(ax, 0, from, to);
+                reduce(ay, 1, from, to);
+                reduce(az, 2, from, to);
+                return null;
+            });
+        }
+        join(tasks);
+    }
 
-        Map<Particle, Vector3> accMap = new HashMap<>();
+    private void kernel(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az,
+            final int from, final int to) {
+        if (simd) {
+            VectorGravity.gravity(particles.x, particles.y, particles.z, ax, ay, az, from, to);
+        } else {
+            Forces.gravity(particles.x, particles.y, particles.z, ax, ay, az, from, to);
+        }
+    }
+
+    private void reduce(final double[] out, final int axis, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            double sum = 0;
+            for (int w = 0; w < threads; w++) {
+                sum += partials[3 * w + axis][i];
+            }
+            out[i] = sum;
+        }
+    }
+
+    /**
+     * Split the rows of the i < j triangle in blocks of about the same pair count
+     *
+     * @param n the number of particles
+     * @return the block boundaries, of length threads + 1
+     */
+    private int[] rows(final int n) {
+        final var bounds = new int[threads + 1];
+        final var total = (long) n * (n - 1) / 2;
+
+        long pairs = 0;
+        int w = 1;
+        for (int i = 0; i < n && w < threads; i++) {
+            pairs += n - 1 - i;
+            while (w < threads && pairs * threads >= total * w) {
+                bounds[w++] = i + 1;
+            }
+        }
+
+        while (w <= threads) {
+            bounds[w++] = n;
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Shut the workers down, a later evaluation starts new ones
+     */
+    @Override
+    public synchronized void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        partials = null;
+    }
 
-        // O(N^2) simple version; you can switch to i<j pairing later
-        for (Particle p : particles) {
-            for (Particle other : particles) {
-                if (p == other) continue;
-                Vector3 a = Forces.gravity(p, other); // should return *acceleration* on p due to other
-                accMap.merge(p, a, Vector3::add);     // <-- accumulate properly
+    private void join(final List<Callable<Void>> tasks) {
+        try {
+            for (final var task : pool.invokeAll(tasks)) {
+                task.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing gravity", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Gravity worker failed", e.getCause());
         }
-        return accMap;
     }
 }
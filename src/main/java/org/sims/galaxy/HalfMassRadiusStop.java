@@ -0,0 +1,73 @@
+package org.sims.galaxy;
+
+import java.util.*;
+
+import org.sims.interfaces.StopCondition;
+
+/**
+ * Detects t*, the first time the half-mass radius
+ * crosses a threshold upwards, and ends the run
+ * a grace window later.
+ *
+ * Same criterion as hmr.py, but evaluated online,
+ * so the run doesn't go on once t* is known.
+ */
+public class HalfMassRadiusStop implements StopCondition<Diagnostics.Sample> {
+    public static final double DEFAULT_THRESHOLD = 1.0;
+
+    private final double threshold;
+    private final long grace;
+
+    private double previous = Double.NaN;
+    private long crossing = -1;
+
+    /**
+     * @param threshold the half-mass radius to cross
+     * @param grace     the steps to keep running after t*
+     */
+    public HalfMassRadiusStop(final double threshold, final long grace) {
+        if (grace < 0) {
+            throw new IllegalArgumentException("grace must be non negative, got " + grace);
+        }
+
+        this.threshold = threshold;
+        this.grace = grace;
+    }
+
+    @Override
+    public boolean done(final Diagnostics.Sample sample) {
+        if (crossing < 0 && previous <= threshold && sample.halfMassRadius() > threshold) {
+            crossing = sample.step();
+        }
+        previous = sample.halfMassRadius();
+
+        return crossing >= 0 && sample.step() >= crossing + grace;
+    }
+
+    /**
+     * The previous half-mass radius and the crossing step
+     */
+    @Override
+    public double[] state() {
+        return new double[] { previous, crossing };
+    }
+
+    @Override
+    public void restore(final double[] state) {
+        if (state.length < 2) {
+            return;
+        }
+
+        previous = state[0];
+        crossing = (long) state[1];
+    }
+
+    /**
+     * The step where t* was found
+     *
+     * @return the first sampled step above the threshold, if crossed yet
+     */
+    public OptionalLong crossing() {
+        return crossing < 0 ? OptionalLong.empty() : OptionalLong.of(crossing);
+    }
+}
@@ -0,0 +1,83 @@
+package org.sims.galaxy;
+
+import java.util.*;
+
+import org.sims.interfaces.BufferForce;
+import org.sims.interfaces.Force;
+import org.sims.models.Particle;
+import org.sims.models.ParticleBuffer;
+import org.sims.models.Vector3;
+
+/**
+ * The sum of several forces, such as gravity plus a short-range contact.
+ *
+ * The first force writes the output planes, every other one is
+ * evaluated into scratch planes and added on top.
+ */
+public class SumForce implements Force<Particle>, BufferForce, AutoCloseable {
+    private final List<BufferForce> forces;
+    private double[] sx, sy, sz;
+
+    /**
+     * @param forces the forces to add, at least one
+     */
+    public SumForce(final BufferForce... forces) {
+        if (forces.length == 0) {
+            throw new IllegalArgumentException("Expected at least one force");
+        }
+
+        this.forces = List.of(forces);
+    }
+
+    /**
+     * The added forces, in evaluation order
+     */
+    public List<BufferForce> forces() {
+        return forces;
+    }
+
+    @Override
+    public Map<Particle, Vector3> apply(final Collection<Particle> particles) {
+        return BufferForce.map(this, particles);
+    }
+
+    @Override
+    public void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        final var n = particles.size();
+        forces.getFirst().apply(particles, ax, ay, az);
+        if (forces.size() == 1) {
+            return;
+        }
+
+        if (sx == null || sx.length != n) {
+            sx = new double[n];
+            sy = new double[n];
+            sz = new double[n];
+        }
+
+        for (int f = 1; f < forces.size(); f++) {
+            forces.get(f).apply(particles, sx, sy, sz);
+            for (int i = 0; i < n; i++) {
+                ax[i] += sx[i];
+                ay[i] += sy[i];
+                az[i] += sz[i];
+            }
+        }
+    }
+
+    /**
+     * Close every added force that holds resources
+     */
+    @Override
+    public void close() {
+        for (final var force : forces) {
+            if (force instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Could not close " + force.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.sims.galaxy;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import org.sims.models.Forces;
+
+/**
+ * SIMD version of {@link Forces#gravity(double[], double[], double[], double[], double[], double[], int, int)}.
+ *
+ * For every row i, the j > i columns are processed one
+ * lane-width at a time: the softened inverse cube distances
+ * are computed for all lanes at once, subtracted from the
+ * row accumulator and added to the j accelerations.
+ *
+ * @implNote Touching this class requires the jdk.incubator.vector
+ *           module, check {@link GravityForce#SIMD_AVAILABLE} before using it.
+ */
+final class VectorGravity {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorGravity() {
+    }
+
+    /**
+     * @see Forces#gravity(double[], double[], double[], double[], double[], double[], int, int)
+     */
+    static void gravity(final double[] x, final double[] y, final double[] z,
+            final double[] ax, final double[] ay, final double[] az, final int from, final int to) {
+        final var species = SPECIES;
+        final var n = x.length;
+        final var h2 = Forces.H * Forces.H;
+        final var one = DoubleVector.broadcast(species, 1.0);
+
+        for (int i = from; i < to; i++) {
+            final var xi = DoubleVector.broadcast(species, x[i]);
+            final var yi = DoubleVector.broadcast(species, y[i]);
+            final var zi = DoubleVector.broadcast(species, z[i]);
+            var sx = DoubleVector.zero(species);
+            var sy = DoubleVector.zero(species);
+            var sz = DoubleVector.zero(species);
+
+            int j = i + 1;
+            final var bound = j + species.loopBound(n - j);
+            for (; j < bound; j += species.length()) {
+                final var dx = xi.sub(DoubleVector.fromArray(species, x, j));
+                final var dy = yi.sub(DoubleVector.fromArray(species, y, j));
+                final var dz = zi.sub(DoubleVector.fromArray(species, z, j));
+                final var r2 = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz)).add(h2);
+                final var inv = one.div(r2.mul(r2.lanewise(VectorOperators.SQRT)));
+
+                final var fx = dx.mul(inv);
+                final var fy = dy.mul(inv);
+                final var fz = dz.mul(inv);
+
+                sx = sx.sub(fx);
+                sy = sy.sub(fy);
+                sz = sz.sub(fz);
+                DoubleVector.fromArray(species, ax, j).add(fx).intoArray(ax, j);
+                DoubleVector.fromArray(species, ay, j).add(fy).intoArray(ay, j);
+                DoubleVector.fromArray(species, az, j).add(fz).intoArray(az, j);
+            }
+
+            double tx = sx.reduceLanes(VectorOperators.ADD);
+            double ty = sy.reduceLanes(VectorOperators.ADD);
+            double tz = sz.reduceLanes(VectorOperators.ADD);
+
+            for (; j < n; j++) {
+                final var dx = x[i] - x[j];
+                final var dy = y[i] - y[j];
+                final var dz = z[i] - z[j];
+                final var r2 = dx * dx + dy * dy + dz * dz + h2;
+                final var inv = 1.0 / (r2 * Math.sqrt(r2));
+
+                tx -= dx * inv;
+                ty -= dy * inv;
+                tz -= dz * inv;
+                ax[j] += dx * inv;
+                ay[j] += dy * inv;
+                az[j] += dz * inv;
+            }
+
+            ax[i] += tx;
+            ay[i] += ty;
+            az[i] += tz;
+        }
+    }
+}
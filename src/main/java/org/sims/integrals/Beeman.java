@@ -4,9 +4,11 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.sims.interfaces.Force;
 import org.sims.interfaces.Integrator;
+import org.sims.models.MutableVector3;
 import org.sims.models.Particle;
 import org.sims.models.Vector3;
 
@@ -14,36 +16,37 @@ public record Beeman(Double dt, Force<Particle> force, Map<Particle, Vector3> ac
     @Override
     public List<Particle> step(final Collection<Particle> particles) {
         final var dt2 = dt * dt;
+        final var current = List.copyOf(particles);
+        final var r = new MutableVector3();
 
-        final var moved = particles.stream().map(p -> {
-            final var future_pos = p.getPosition()
-                    .add(p.getVelocity().mult(dt))
-                    .add(acc.get(p).mult((2.0 / 3.0) * dt2))
-                    .subtract(p.getMemory().mult((1.0 / 6.0) * dt2));
-            final Vector3 predicted_vel = p.getVelocity()
-                .add(acc.get(p).mult((3.0 / 2.0) * dt))
-                .subtract(p.getMemory().mult((1.0 / 2.0) * dt));
+        final var moved = current.stream().map(p -> {
+            final var future_pos = r.set(p.getPosition())
+                    .add(p.getVelocity(), dt)
+                    .add(acc.get(p), (2.0 / 3.0) * dt2)
+                    .add(p.getMemory(), -(1.0 / 6.0) * dt2)
+                    .toVector3();
+            final Vector3 predicted_vel = r.set(p.getVelocity())
+                .add(acc.get(p), (3.0 / 2.0) * dt)
+                .add(p.getMemory(), -(1.0 / 2.0) * dt)
+                .toVector3();
 
             return new Particle(p, future_pos, predicted_vel);
         }).toList();
 
         final var future_acc = force.apply(moved);
 
-        return particles.stream().map(p -> {
-            final var vel = p.getVelocity()
-                    .add(future_acc.get(p).mult((1.0 / 3.0) * dt))
-                    .add(acc.get(p).mult((5.0 / 6.0) * dt))
-                    .subtract(p.getMemory().mult((1.0 / 6.0) * dt));
-
-            final var future_pos = p.getPosition()
-                    .add(p.getVelocity().mult(dt))
-                    .add(acc.get(p).mult((2.0 / 3.0) * dt2))
-                    .subtract(p.getMemory().mult((1.0 / 6.0) * dt2));
+        return IntStream.range(0, current.size()).mapToObj(i -> {
+            final var p = current.get(i);
+            final var vel = r.set(p.getVelocity())
+                    .add(future_acc.get(p), (1.0 / 3.0) * dt)
+                    .add(acc.get(p), (5.0 / 6.0) * dt)
+                    .add(p.getMemory(), -(1.0 / 6.0) * dt)
+                    .toVector3();
 
             p.setMemory(acc.get(p));
             acc.put(p, future_acc.get(p));
 
-            return new Particle(p, future_pos, vel);
+            return new Particle(p, moved.get(i).getPosition(), vel);
         }).toList();
     }
 
@@ -60,7 +63,7 @@ public record Beeman(Double dt, Force<Particle> force, Map<Particle, Vector3> ac
         }
 
         private Particle before(final Particle p, double dt) {
-            final var before = p.getPosition().subtract(p.getVelocity().mult(dt));
+            final var before = new MutableVector3(p.getPosition()).add(p.getVelocity(), -dt).toVector3();
             return new Particle(p, before, p.getVelocity());
         }
     }
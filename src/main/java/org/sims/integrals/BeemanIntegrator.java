@@ -1,6 +1,7 @@
 package org.sims.integrals;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import org.sims.interfaces.*;
 import org.sims.models.*;
@@ -21,16 +22,19 @@ import org.sims.models.*;
  * Accuracy: O(dt³) for positions, O(dt²) for velocities.
  */
 public record BeemanIntegrator(double dt, Force<Particle> force, Map<Particle, Vector3> acc)
-        implements Integrator<Particle> {
+        implements Integrator<Particle>, BufferIntegrator {
     public BeemanIntegrator(double dt, Force<Particle> force, Collection<Particle> particles) {
         this(dt, force, force.apply(particles));
 
+        final var r = new MutableVector3();
         final var lacosamocosa = particles.stream().map(p -> {
-            final var previous_pos = p.getPosition()
-                .subtract(p.getVelocity().mult(dt))
-                .subtract(acc.get(p).mult((1.0 / 2.0) * dt * dt));
-            final var previous_spd = p.getVelocity()
-                .subtract(acc.get(p).mult(dt));
+            final var previous_pos = r.set(p.getPosition())
+                .add(p.getVelocity(), -dt)
+                .add(acc.get(p), -(1.0 / 2.0) * dt * dt)
+                .toVector3();
+            final var previous_spd = r.set(p.getVelocity())
+                .add(acc.get(p), -dt)
+                .toVector3();
             return new Particle(p, previous_pos, previous_spd);
         }).toList();
 
@@ -38,36 +42,41 @@ public record BeemanIntegrator(double dt, Force<Particle> force, Map<Particle, V
         particles.forEach(p -> p.setMemory(previous_acc.get(p)));
     }
 
+    /**
+     * @apiNote x(t+dt) is predicted once, and the moved particles
+     * handed to the force keep it for the corrected ones.
+     */
     @Override
     public List<Particle> step(final Collection<Particle> particles) {
         final var dt2 = dt * dt;
+        final var current = List.copyOf(particles);
+        final var r = new MutableVector3();
 
-        final var moved = particles.stream().map(p -> {
-            final var future_pos = p.getPosition()
-                    .add(p.getVelocity().mult(dt))
-                    .add(acc.get(p).mult((2.0 / 3.0) * dt2))
-                    .subtract(p.getMemory().mult((1.0 / 6.0) * dt2));
-            final Vector3 predicted_vel = p.getVelocity()
-                    .add(acc.get(p).mult((3.0 / 2.0) * dt))
-                    .subtract(p.getMemory().mult((1.0 / 2.0) * dt));
+        final var moved = current.stream().map(p -> {
+            final var future_pos = r.set(p.getPosition())
+                    .add(p.getVelocity(), dt)
+                    .add(acc.get(p), (2.0 / 3.0) * dt2)
+                    .add(p.getMemory(), -(1.0 / 6.0) * dt2)
+                    .toVector3();
+            final Vector3 predicted_vel = r.set(p.getVelocity())
+                    .add(acc.get(p), (3.0 / 2.0) * dt)
+                    .add(p.getMemory(), -(1.0 / 2.0) * dt)
+                    .toVector3();
 
             return new Particle(p, future_pos, predicted_vel);
         }).toList();
 
         final var future_acc = force.apply(moved);
 
-        return particles.stream().map(p -> {
-            final var vel = p.getVelocity()
-                    .add(future_acc.get(p).mult((1.0 / 3.0) * dt))
-                    .add(acc.get(p).mult((5.0 / 6.0) * dt))
-                    .subtract(p.getMemory().mult((1.0 / 6.0) * dt));
+        return IntStream.range(0, current.size()).mapToObj(i -> {
+            final var p = current.get(i);
+            final var vel = r.set(p.getVelocity())
+                    .add(future_acc.get(p), (1.0 / 3.0) * dt)
+                    .add(acc.get(p), (5.0 / 6.0) * dt)
+                    .add(p.getMemory(), -(1.0 / 6.0) * dt)
+                    .toVector3();
 
-            final var future_pos = p.getPosition()
-                    .add(p.getVelocity().mult(dt))
-                    .add(acc.get(p).mult((2.0 / 3.0) * dt2))
-                    .subtract(p.getMemory().mult((1.0 / 6.0) * dt2));
-
-            final var laparticulosa = new Particle(p, future_pos, vel);
+            final var laparticulosa = new Particle(p, moved.get(i).getPosition(), vel);
             laparticulosa.setMemory(acc.get(p));
 
             acc.put(p, future_acc.get(p));
@@ -76,6 +85,60 @@ public record BeemanIntegrator(double dt, Force<Particle> force, Map<Particle, V
         }).toList();
     }
 
+    /**
+     * Loads a(t) in the acceleration planes, from the
+     * accelerations the constructor already computed.
+     *
+     * @apiNote a(t-dt) is taken from the particles' memory,
+     * as initialized by the collection constructor.
+     */
+    @Override
+    public void prepare(final ParticleBuffer particles) {
+        for (int i = 0; i < particles.size(); i++) {
+            final var a = acc.get(particles.source(i));
+            if (a == null) {
+                BufferForce.of(force).apply(particles, particles.ax, particles.ay, particles.az);
+                return;
+            }
+
+            particles.ax[i] = a.x();
+            particles.ay[i] = a.y();
+            particles.az[i] = a.z();
+        }
+    }
+
+    /**
+     * Same scheme as {@link #step(Collection)}, in place.
+     *
+     * The velocity is first moved to its predicted value,
+     * and then corrected as v(t+dt) = v_p + (1/3)*a(t+dt)*dt - (2/3)*a(t)*dt + (1/3)*a(t-dt)*dt,
+     * which equals the corrector above without storing v(t).
+     */
+    @Override
+    public void step(final ParticleBuffer particles) {
+        predict(particles.x, particles.vx, particles.ax, particles.mx);
+        predict(particles.y, particles.vy, particles.ay, particles.my);
+        predict(particles.z, particles.vz, particles.az, particles.mz);
+
+        BufferForce.of(force).apply(particles, particles.sx, particles.sy, particles.sz);
+
+        correct(particles.vx, particles.ax, particles.mx, particles.sx);
+        correct(particles.vy, particles.ay, particles.my, particles.sy);
+        correct(particles.vz, particles.az, particles.mz, particles.sz);
+    }
+
+    private void predict(final double[] r, final double[] v, final double[] a, final double[] m) {
+        final var dt2 = dt * dt;
+
+        Vectors.axpy(r, dt, v, (2.0 / 3.0) * dt2, a, -(1.0 / 6.0) * dt2, m, 0, r.length);
+        Vectors.axpy(v, (3.0 / 2.0) * dt, a, -(1.0 / 2.0) * dt, m, 0, v.length);
+    }
+
+    private void correct(final double[] v, final double[] a, final double[] m, final double[] next) {
+        Vectors.axpy(v, (1.0 / 3.0) * dt, next, -(2.0 / 3.0) * dt, a, (1.0 / 3.0) * dt, m, 0, v.length);
+        Vectors.shift(m, a, next, 0, v.length);
+    }
+
     @Override
     public String name() {
         return "Beeman";
@@ -0,0 +1,293 @@
+package org.sims.integrals;
+
+import java.util.*;
+
+import org.sims.interfaces.*;
+import org.sims.models.*;
+
+/**
+ * Fourth order Hermite predictor-corrector with hierarchical block time steps.
+ *
+ * Every particle has its own step, dt / 2^k for a level k in [0, levels],
+ * picked from its acceleration and its derivatives with the Aarseth
+ * criterion. On each sub-step, every particle is predicted to the
+ * current time, but only the ones due are corrected, so the force
+ * and jerk are computed for the active subset only.
+ *
+ * Times are counted in integer ticks of dt / 2^levels, so the blocks
+ * line up exactly, and every particle is back in sync after each
+ * {@link #step(ParticleBuffer)}, which advances the system by dt.
+ *
+ * @apiNote Needs a {@link JerkForce}, the jerk is part of the scheme.
+ */
+public class BlockHermite implements Integrator<Particle>, BufferIntegrator {
+    public static final double DEFAULT_ETA = 0.02;
+    public static final int DEFAULT_LEVELS = 8;
+
+    /**
+     * Accuracy of the first steps, from the acceleration and jerk only
+     */
+    private static final double ETA_START = 0.01;
+
+    private final double dt;
+    private final JerkForce force;
+    private final double eta;
+    private final long ticks;
+    private final double tick;
+
+    /**
+     * The buffer the state below belongs to
+     */
+    private ParticleBuffer prepared;
+
+    /**
+     * Per particle: last time and step, in ticks
+     */
+    private long[] time, span;
+
+    /**
+     * Per particle: jerk at its last time
+     */
+    private double[] jx, jy, jz;
+
+    /**
+     * Predicted state of every particle, and new force of the active ones
+     */
+    private double[] px, py, pz, pvx, pvy, pvz;
+    private double[] ax1, ay1, az1, jx1, jy1, jz1;
+
+    private int[] active;
+    private long evaluations = 0;
+
+    /**
+     * @param dt     the largest step, and the sync interval
+     * @param force  the force, with its jerk
+     * @param eta    the accuracy parameter of the step criterion
+     * @param levels the number of halvings allowed, the smallest step is dt / 2^levels
+     */
+    public BlockHermite(final double dt, final Force<Particle> force, final double eta, final int levels) {
+        if (!(force instanceof JerkForce f)) {
+            throw new IllegalArgumentException(
+                    "%s has no jerk, block steps need it".formatted(force.getClass().getSimpleName()));
+        }
+        if (levels < 0 || levels > 40) {
+            throw new IllegalArgumentException("levels must be in [0, 40], got " + levels);
+        }
+
+        this.dt = dt;
+        this.force = f;
+        this.eta = eta;
+        this.ticks = 1L << levels;
+        this.tick = dt / ticks;
+    }
+
+    public BlockHermite(final double dt, final Force<Particle> force) {
+        this(dt, force, DEFAULT_ETA, DEFAULT_LEVELS);
+    }
+
+    /**
+     * The number of single-particle force evaluations so far
+     *
+     * @return N for each full force pass, fewer on block sub-steps
+     */
+    public long evaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Same scheme as {@link #step(ParticleBuffer)}, over a copy of the particles.
+     *
+     * The force, jerk and steps of the last call are kept while the IDs
+     * match, so the particles are only prepared on the first call.
+     */
+    @Override
+    public List<Particle> step(final Collection<Particle> particles) {
+        final var buffer = ParticleBuffer.of(particles);
+
+        if (prepared != null && Arrays.equals(prepared.ids, buffer.ids)) {
+            System.arraycopy(prepared.ax, 0, buffer.ax, 0, buffer.size());
+            System.arraycopy(prepared.ay, 0, buffer.ay, 0, buffer.size());
+            System.arraycopy(prepared.az, 0, buffer.az, 0, buffer.size());
+            prepared = buffer;
+        }
+
+        step(buffer);
+        return buffer.toParticles();
+    }
+
+    /**
+     * Compute the acceleration and jerk of every particle,
+     * and pick their first steps
+     */
+    @Override
+    public void prepare(final ParticleBuffer particles) {
+        final var n = particles.size();
+        prepared = particles;
+
+        time = new long[n];
+        span = new long[n];
+        jx = new double[n];
+        jy = new double[n];
+        jz = new double[n];
+        px = new double[n];
+        py = new double[n];
+        pz = new double[n];
+        pvx = new double[n];
+        pvy = new double[n];
+        pvz = new double[n];
+        ax1 = new double[n];
+        ay1 = new double[n];
+        az1 = new double[n];
+        jx1 = new double[n];
+        jy1 = new double[n];
+        jz1 = new double[n];
+        active = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            active[i] = i;
+        }
+        force.apply(particles.x, particles.y, particles.z, particles.vx, particles.vy, particles.vz, active, n,
+                particles.ax, particles.ay, particles.az, jx, jy, jz);
+        evaluations += n;
+
+        for (int i = 0; i < n; i++) {
+            final var a = norm(particles.ax[i], particles.ay[i], particles.az[i]);
+            final var j = norm(jx[i], jy[i], jz[i]);
+            span[i] = quantize(j > 0 ? ETA_START * a / j : dt, ticks);
+        }
+    }
+
+    /**
+     * Advance every particle by dt, in block sub-steps
+     *
+     * @apiNote Prepares the buffer on first use, so resuming from
+     * a synchronized state doesn't need the steps to be saved.
+     */
+    @Override
+    public void step(final ParticleBuffer particles) {
+        if (prepared != particles) {
+            prepare(particles);
+        }
+
+        final var n = particles.size();
+        Arrays.fill(time, 0);
+
+        long now;
+        do {
+            // 1. The next block time, and who is due
+            now = Long.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                now = Math.min(now, time[i] + span[i]);
+            }
+
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (time[i] + span[i] == now) {
+                    active[count++] = i;
+                }
+            }
+
+            // 2. Predict everyone to the block time
+            for (int i = 0; i < n; i++) {
+                predict(particles, i, (now - time[i]) * tick);
+            }
+
+            // 3. Force and jerk of the active particles only
+            force.apply(px, py, pz, pvx, pvy, pvz, active, count, ax1, ay1, az1, jx1, jy1, jz1);
+            evaluations += count;
+
+            // 4. Correct them, and pick their next steps
+            for (int k = 0; k < count; k++) {
+                correct(particles, active[k], now);
+            }
+        } while (now < ticks);
+    }
+
+    private void predict(final ParticleBuffer p, final int i, final double h) {
+        final var h2 = h * h / 2;
+        final var h3 = h2 * h / 3;
+
+        px[i] = p.x[i] + p.vx[i] * h + p.ax[i] * h2 + jx[i] * h3;
+        py[i] = p.y[i] + p.vy[i] * h + p.ay[i] * h2 + jy[i] * h3;
+        pz[i] = p.z[i] + p.vz[i] * h + p.az[i] * h2 + jz[i] * h3;
+        pvx[i] = p.vx[i] + p.ax[i] * h + jx[i] * h2;
+        pvy[i] = p.vy[i] + p.ay[i] * h + jy[i] * h2;
+        pvz[i] = p.vz[i] + p.az[i] * h + jz[i] * h2;
+    }
+
+    private void correct(final ParticleBuffer p, final int i, final long now) {
+        final var h = span[i] * tick;
+
+        // Snap and crackle at the start of the step, from the Hermite interpolation
+        final var sx = snap(p.ax[i], ax1[i], jx[i], jx1[i], h);
+        final var sy = snap(p.ay[i], ay1[i], jy[i], jy1[i], h);
+        final var sz = snap(p.az[i], az1[i], jz[i], jz1[i], h);
+        final var cx = crackle(p.ax[i], ax1[i], jx[i], jx1[i], h);
+        final var cy = crackle(p.ay[i], ay1[i], jy[i], jy1[i], h);
+        final var cz = crackle(p.az[i], az1[i], jz[i], jz1[i], h);
+
+        final var h3 = h * h * h / 6;
+        final var h4 = h3 * h / 4;
+        final var h5 = h4 * h / 5;
+
+        p.x[i] = px[i] + sx * h4 + cx * h5;
+        p.y[i] = py[i] + sy * h4 + cy * h5;
+        p.z[i] = pz[i] + sz * h4 + cz * h5;
+        p.vx[i] = pvx[i] + sx * h3 + cx * h4;
+        p.vy[i] = pvy[i] + sy * h3 + cy * h4;
+        p.vz[i] = pvz[i] + sz * h3 + cz * h4;
+
+        p.ax[i] = ax1[i];
+        p.ay[i] = ay1[i];
+        p.az[i] = az1[i];
+        jx[i] = jx1[i];
+        jy[i] = jy1[i];
+        jz[i] = jz1[i];
+        time[i] = now;
+
+        // Aarseth criterion, with the snap moved to the end of the step
+        final var a = norm(p.ax[i], p.ay[i], p.az[i]);
+        final var j = norm(jx[i], jy[i], jz[i]);
+        final var s = norm(sx + cx * h, sy + cy * h, sz + cz * h);
+        final var c = norm(cx, cy, cz);
+        final var den = j * c + s * s;
+        final var desired = den > 0 ? Math.sqrt(eta * (a * s + j * j) / den) : dt;
+
+        // Halve freely, but only double when the block boundaries line up,
+        // so every block ends on a multiple of itself, and at dt at the latest
+        final var next = quantize(desired, ticks);
+        span[i] = next > span[i] && now % (2 * span[i]) == 0 ? 2 * span[i] : Math.min(next, span[i]);
+    }
+
+    private static double snap(final double a0, final double a1, final double j0, final double j1, final double h) {
+        return (-6 * (a0 - a1) - h * (4 * j0 + 2 * j1)) / (h * h);
+    }
+
+    private static double crackle(final double a0, final double a1, final double j0, final double j1, final double h) {
+        return (12 * (a0 - a1) + 6 * h * (j0 + j1)) / (h * h * h);
+    }
+
+    /**
+     * The largest power of two block not longer than a step
+     *
+     * @param desired the step, in time units
+     * @param max     the largest block, in ticks
+     * @return the block, in ticks
+     */
+    private long quantize(final double desired, final long max) {
+        long block = max;
+        while (block > 1 && block * tick > desired) {
+            block >>= 1;
+        }
+        return block;
+    }
+
+    private static double norm(final double x, final double y, final double z) {
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    @Override
+    public String name() {
+        return "BlockHermite";
+    }
+}
@@ -1,26 +1,48 @@
 package org.sims.integrals;
 
+import org.sims.interfaces.BufferForce;
+import org.sims.interfaces.BufferIntegrator;
 import org.sims.interfaces.Force;
 import org.sims.interfaces.Integrator;
 import org.sims.models.Particle;
-import org.sims.models.Vector3;
+import org.sims.models.ParticleBuffer;
 
 import java.util.*;
 
 /**
  * Gear predictor-corrector for Forces that depend ONLY on position.
+ *
+ * Both paths work over the index-aligned derivative planes of a
+ * {@link ParticleBuffer}, 6 x 3 x N doubles, with the dt^k / k!
+ * and alpha_k k! / dt^k factors computed once, so a step is
+ * linear in N apart from the force. Particles keep their order.
  */
-public class GearIntegrator implements Integrator<Particle> {
+public class GearIntegrator implements Integrator<Particle>, BufferIntegrator {
 
     private final double dt;
     private final Force<Particle> forceCalculator;
     private List<Double> gearCoefficients;
     private String name;
 
+    /**
+     * dt^k / k!, the Taylor predictor factors
+     */
+    private final double[] taylor = new double[ParticleBuffer.ORDER + 1];
+
+    /**
+     * alpha_k * k! / dt^k, the corrector factors
+     */
+    private final double[] corrector = new double[ParticleBuffer.ORDER + 1];
+
     public GearIntegrator(double dt, Force<Particle> forceCalculator, GearType gearType){
         this.dt = dt;
         this.forceCalculator = forceCalculator;
 
+        taylor[0] = 1;
+        for (int k = 1; k < taylor.length; k++) {
+            taylor[k] = taylor[k - 1] * dt / k;
+        }
+
         //coefficients for a force only position-dependant
         if(gearType == GearType.POSITION){
             setGearCoefficients(List.of(3/20.0, 251/360.0, 1.0, 11/18.0, 1/6.0, 1/60.0));
@@ -38,100 +60,82 @@ public class GearIntegrator implements Integrator<Particle> {
 
     public void setGearCoefficients(List<Double> gearCoefficients){
         this.gearCoefficients = gearCoefficients;
+
+        for (int k = 0; k < corrector.length && k < gearCoefficients.size(); k++) {
+            corrector[k] = gearCoefficients.get(k) / taylor[k];
+        }
     }
 
     /**
-     * Computes the variation of the particles' derivatives
-     *
-     * @return List of derivatives up to order 5
+     * Same scheme as {@link #step(ParticleBuffer)}, over a copy of the particles.
      *
+     * @apiNote Forces without an array-based implementation get
+     * the predicted particles, see {@link BufferForce#of(Force)}.
      */
-    private List<Vector3> computeDerivatives(List<Vector3> prevDerivatives) {
-        int k = prevDerivatives.size() - 1;
-        List<Vector3> newDerivatives = new ArrayList<>(Collections.nCopies(prevDerivatives.size(), Vector3.ZERO));
-
-        for (int i = 0; i <= k; i++) {
-            Vector3 sum = Vector3.ZERO;
-            // For the i-th derivative, sum contributions from all higher-order derivatives j
-            for (int j = i; j <= k; j++) {
-                double factor = Math.pow(dt, j - i) / factorial(j - i);
-                sum = sum.add(prevDerivatives.get(j).mult(factor));
-            }
-            newDerivatives.set(i, sum);
-        }
-        return newDerivatives;
-    }
-
     @Override
     public List<Particle> step(Collection<Particle> entities) {
+        final var particles = ParticleBuffer.of(entities);
 
         //1. Predict Derivatives
-        List<Particle> predictedParticles =  entities.stream().map(
-                particle-> new Particle(particle, computeDerivatives(particle.getDerivatives())))
-                .toList();
+        predict(particles);
 
         //2. Calculate forces
-        Map<Particle, Vector3> uncorrectedForces = forceCalculator.apply(predictedParticles);
+        BufferForce.of(forceCalculator).apply(particles, particles.ax, particles.ay, particles.az);
 
         //3. Correct
-        return correctParticles( uncorrectedForces, entities);
+        correct(particles);
+        return particles.toParticles();
     }
 
-
-    private List<Particle> correctParticles(Map<Particle, Vector3> newParticles, Collection<Particle> oldParticles){
-        //1.Acceleration
-        //a = F/m
-        Map<Particle, Vector3> newAccelerations = new HashMap<>();
-        for (var entry : newParticles.entrySet()) {
-            Vector3 acceleration = entry.getValue();
-            newAccelerations.put(entry.getKey(), acceleration);
-        }
-
-        List<Particle> correctedParticles = new ArrayList<>();
-
-        // 2. Loop over particles and correct
-        for (Map.Entry<Particle, Vector3> entry : newAccelerations.entrySet()) {
-            var particle = entry.getKey();
-            var acceleration = entry.getValue();
-
-            List<Vector3> predictedDerivatives = particle.getDerivatives();
-            List<Vector3> oldDerivatives = oldParticles.stream()
-                    .filter(p -> p.getID() == particle.getID())
-                    .findFirst()
-                    .orElseThrow()
-                    .getDerivatives();
-
-            // Δr² = a_new - a_predicted   (vector!)
-            Vector3 deltaR2 = acceleration.subtract(predictedDerivatives.get(2)).mult(dt * dt / 2.0);
-
-            // Correct all derivatives
-            List<Vector3> correctedDerivatives = correctDerivatives(predictedDerivatives, deltaR2);
-
-            correctedParticles.add(new Particle(particle, correctedDerivatives));
-        }
-
-        return correctedParticles;
-
+    /**
+     * Same scheme as {@link #step(Collection)}, in place over
+     * the buffer's derivative planes.
+     *
+     * @apiNote The derivatives must be initialized beforehand,
+     * as with the particles' derivatives.
+     */
+    @Override
+    public void step(ParticleBuffer particles) {
+        predict(particles);
+        BufferForce.of(forceCalculator).apply(particles, particles.ax, particles.ay, particles.az);
+        correct(particles);
     }
 
-    private int factorial(int n) {
-        return (n <= 1) ? 1 : n * factorial(n - 1);
+    private void predict(ParticleBuffer particles) {
+        predict(particles.dx);
+        predict(particles.dy);
+        predict(particles.dz);
     }
 
-    private List<Vector3> correctDerivatives(List<Vector3> predictedDerivatives, Vector3 deltaR2) {
-        List<Vector3> correctedDerivatives = new ArrayList<>(predictedDerivatives.size());
-
-        for (int i = 0; i < predictedDerivatives.size(); i++) {
-            double alpha_i = getGearCoefficients().get(i);
-            double scale = alpha_i * factorial(i) / Math.pow(dt, i);
+    private void correct(ParticleBuffer particles) {
+        correct(particles.dx, particles.ax);
+        correct(particles.dy, particles.ay);
+        correct(particles.dz, particles.az);
+    }
 
-            // Vector correction
-            Vector3 r_i_corrected = predictedDerivatives.get(i).add(deltaR2.mult(scale));
-            correctedDerivatives.add(r_i_corrected);
+    private void predict(double[][] d) {
+        // Ascending order reads the higher derivatives before they are overwritten
+        for (int p = 0; p < d[0].length; p++) {
+            for (int i = 0; i < d.length; i++) {
+                double sum = 0;
+                for (int j = i; j < d.length; j++) {
+                    sum += d[j][p] * taylor[j - i];
+                }
+                d[i][p] = sum;
+            }
         }
+    }
 
-        return correctedDerivatives;
+    private void correct(double[][] d, double[] acceleration) {
+        for (int p = 0; p < d[0].length; p++) {
+            // Δr² = a_new - a_predicted
+            double deltaR2 = (acceleration[p] - d[2][p]) * taylor[2];
+            for (int i = 0; i < d.length; i++) {
+                d[i][p] += deltaR2 * corrector[i];
+            }
+        }
     }
+
     @Override
     public String name() {
         return name;
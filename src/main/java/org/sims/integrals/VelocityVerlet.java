@@ -0,0 +1,109 @@
+package org.sims.integrals;
+
+import java.util.*;
+
+import org.sims.interfaces.*;
+import org.sims.models.*;
+
+/**
+ * Kick-drift-kick velocity Verlet.
+ *
+ * v(t+dt/2) = v(t) + a(t)*dt/2
+ * x(t+dt)   = x(t) + v(t+dt/2)*dt
+ * v(t+dt)   = v(t+dt/2) + a(t+dt)*dt/2
+ *
+ * a(t+dt) is kept as the next step's a(t), so there is
+ * exactly one force evaluation per step. On the buffer path
+ * it lives in the acceleration planes, on the collection
+ * path in a slot-aligned cache owned by the integrator.
+ */
+public class VelocityVerlet implements Integrator<Particle>, BufferIntegrator {
+    private final double dt;
+    private final Force<Particle> force;
+
+    /**
+     * The acceleration cache of the collection path, and the IDs it belongs to
+     */
+    private ParticleBuffer cache;
+
+    public VelocityVerlet(final double dt, final Force<Particle> force) {
+        this.dt = dt;
+        this.force = force;
+    }
+
+    public double dt() {
+        return dt;
+    }
+
+    public Force<Particle> force() {
+        return force;
+    }
+
+    /**
+     * Same scheme as {@link #step(ParticleBuffer)}, over a copy of the particles.
+     *
+     * @apiNote a(t) is reused from the previous call as long as the
+     * same particles come back in the same order.
+     */
+    @Override
+    public List<Particle> step(final Collection<Particle> particles) {
+        final var buffer = ParticleBuffer.of(particles);
+
+        if (cache != null && Arrays.equals(cache.ids, buffer.ids)) {
+            System.arraycopy(cache.ax, 0, buffer.ax, 0, buffer.size());
+            System.arraycopy(cache.ay, 0, buffer.ay, 0, buffer.size());
+            System.arraycopy(cache.az, 0, buffer.az, 0, buffer.size());
+        } else {
+            accelerate(buffer);
+        }
+
+        step(buffer);
+        cache = buffer;
+        return buffer.toParticles();
+    }
+
+    /**
+     * Loads a(t) in the acceleration planes
+     */
+    @Override
+    public void prepare(final ParticleBuffer particles) {
+        accelerate(particles);
+    }
+
+    @Override
+    public void step(final ParticleBuffer particles) {
+        final var half = dt / 2;
+
+        kickDrift(particles.x, particles.vx, particles.ax, half);
+        kickDrift(particles.y, particles.vy, particles.ay, half);
+        kickDrift(particles.z, particles.vz, particles.az, half);
+
+        accelerate(particles);
+
+        kick(particles.vx, particles.ax, half);
+        kick(particles.vy, particles.ay, half);
+        kick(particles.vz, particles.az, half);
+    }
+
+    private void accelerate(final ParticleBuffer particles) {
+        BufferForce.of(force).apply(particles, particles.ax, particles.ay, particles.az);
+    }
+
+    private void kickDrift(final double[] r, final double[] v, final double[] a, final double half) {
+        for (int i = 0; i < r.length; i++) {
+            v[i] += a[i] * half;
+            r[i] += v[i] * dt;
+        }
+    }
+
+    private void kick(final double[] v, final double[] a, final double half) {
+        for (int i = 0; i < v.length; i++) {
+            v[i] += a[i] * half;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "VelocityVerlet";
+    }
+}
@@ -5,18 +5,18 @@ import java.util.*;
 import org.sims.interfaces.*;
 import org.sims.models.*;
 
-public record Verlet(double dt, Force<Particle> force) implements Integrator<Particle> {
+public record Verlet(double dt, Force<Particle> force) implements Integrator<Particle>, BufferIntegrator {
     @Override
     public List<Particle> step(final Collection<Particle> particles) {
         final var acc = force.apply(particles);
+        final var r = new MutableVector3();
 
         return particles.stream().map(p -> {
-            final var a = p.getPosition().mult(2);
-            final var b = p.getMemory().neg();
-            final var c = acc.get(p).mult(dt * dt);
-
-            final var pos = a.add(b).add(c);
-            final var vel = pos.subtract(p.getMemory()).div(2 * dt);
+            final var pos = r.set(p.getPosition(), 2)
+                    .add(p.getMemory(), -1)
+                    .add(acc.get(p), dt * dt)
+                    .toVector3();
+            final var vel = r.add(p.getMemory(), -1).div(2 * dt).toVector3();
 
             Particle next = new Particle(p, pos, vel);
             next.setMemory(p.getPosition());
@@ -24,6 +24,43 @@ public record Verlet(double dt, Force<Particle> force) implements Integrator<Par
         }).toList();
     }
 
+    /**
+     * Loads a(t) in the acceleration planes
+     */
+    @Override
+    public void prepare(final ParticleBuffer particles) {
+        BufferForce.of(force).apply(particles, particles.ax, particles.ay, particles.az);
+    }
+
+    /**
+     * Same scheme as {@link #step(Collection)}, in place.
+     *
+     * a(t) comes from the previous step, and a(t+dt) is left
+     * in the acceleration planes for the next one.
+     */
+    @Override
+    public void step(final ParticleBuffer particles) {
+        move(particles.x, particles.vx, particles.mx, particles.ax);
+        move(particles.y, particles.vy, particles.my, particles.ay);
+        move(particles.z, particles.vz, particles.mz, particles.az);
+
+        BufferForce.of(force).apply(particles, particles.ax, particles.ay, particles.az);
+    }
+
+    /**
+     * Verlet update over one axis, in place
+     */
+    private void move(final double[] r, final double[] v, final double[] m, final double[] a) {
+        final var dt2 = dt * dt;
+
+        for (int i = 0; i < r.length; i++) {
+            final var pos = 2 * r[i] - m[i] + a[i] * dt2;
+            v[i] = (pos - m[i]) / (2 * dt);
+            m[i] = r[i];
+            r[i] = pos;
+        }
+    }
+
     public static class Constructor implements Integrator.Constructor<Particle> {
         @Override
         public Integrator<Particle> get(double dt, Force<Particle> force) {
@@ -36,7 +73,7 @@ public record Verlet(double dt, Force<Particle> force) implements Integrator<Par
         }
 
         private Particle before(final Particle p, double dt) {
-            final var before = p.getPosition().subtract(p.getVelocity().mult(dt));
+            final var before = new MutableVector3(p.getPosition()).add(p.getVelocity(), -dt).toVector3();
             //TODO getPosition ????
             return new Particle(p, before, p.getVelocity());
         }
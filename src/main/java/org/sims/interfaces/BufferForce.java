@@ -0,0 +1,91 @@
+package org.sims.interfaces;
+
+import java.util.*;
+
+import org.sims.models.*;
+
+/**
+ * The array-based counterpart of {@link Force}.
+ *
+ * Instead of building a map, the force writes the
+ * acceleration of every slot of a {@link ParticleBuffer}
+ * into caller-provided planes, so no allocation is needed.
+ *
+ * {@link #of(Force)} and {@link #asForce(BufferForce)} adapt
+ * between both contracts, so integrators can always work
+ * over a buffer, and use the allocation free path when the
+ * force supports it.
+ *
+ * @implNote The force MUST NOT alter the buffer,
+ *           and MUST overwrite the output planes.
+ */
+public interface BufferForce {
+    /**
+     * Compute the acceleration of every particle in the buffer
+     *
+     * @param particles the particles state
+     * @param ax        the output x plane, indexed by slot
+     * @param ay        the output y plane, indexed by slot
+     * @param az        the output z plane, indexed by slot
+     */
+    void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az);
+
+    /**
+     * Get the array-based view of a force
+     *
+     * @apiNote Forces without an array-based implementation are adapted,
+     * they get the particles in slot order and their map is read back by slot,
+     * so only array-based forces are allocation free.
+     *
+     * @param force the force
+     * @return the same force if it is a BufferForce, or an adapter
+     */
+    static BufferForce of(final Force<Particle> force) {
+        if (force instanceof BufferForce f) {
+            return f;
+        }
+
+        return (particles, ax, ay, az) -> {
+            final var current = new ArrayList<Particle>(particles.size());
+            for (int i = 0; i < particles.size(); i++) {
+                current.add(new Particle(particles.source(i), particles.position(i), particles.velocity(i)));
+            }
+
+            final var acc = force.apply(current);
+            for (int i = 0; i < current.size(); i++) {
+                final var a = acc.get(current.get(i));
+                ax[i] = a.x();
+                ay[i] = a.y();
+                az[i] = a.z();
+            }
+        };
+    }
+
+    /**
+     * Get the map-based view of an array-based force
+     *
+     * @param force the force
+     * @return a Force copying the particles into a buffer on every call
+     */
+    static Force<Particle> asForce(final BufferForce force) {
+        return particles -> map(force, particles);
+    }
+
+    /**
+     * Evaluate an array-based force over a collection of particles
+     *
+     * @param force     the force
+     * @param particles the particles
+     * @return the acceleration of every particle
+     */
+    static Map<Particle, Vector3> map(final BufferForce force, final Collection<Particle> particles) {
+        final var buffer = ParticleBuffer.of(particles);
+        force.apply(buffer, buffer.ax, buffer.ay, buffer.az);
+
+        final Map<Particle, Vector3> acc = HashMap.newHashMap(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            acc.put(buffer.source(i), buffer.acceleration(i));
+        }
+        return acc;
+    }
+}
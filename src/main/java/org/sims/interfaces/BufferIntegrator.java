@@ -0,0 +1,33 @@
+package org.sims.interfaces;
+
+import org.sims.models.*;
+
+/**
+ * The array-based counterpart of {@link Integrator}.
+ *
+ * Moves the particles of a {@link ParticleBuffer} in place,
+ * using the buffer's planes as the integrator memory.
+ *
+ * The acceleration planes are the force cache shared by every
+ * stage of a run: after prepare and after every step they hold
+ * the last force evaluation, so nothing else has to call the force.
+ * For every integrator but Gear, whose force is evaluated at the
+ * predicted positions, that is the acceleration of the current state.
+ */
+public interface BufferIntegrator extends Named {
+    /**
+     * Initialize the buffer planes the algorithm relies on,
+     * such as the current acceleration.
+     *
+     * @param particles the buffer to initialize
+     */
+    default void prepare(final ParticleBuffer particles) {
+    }
+
+    /**
+     * Advance the buffer by one time step, in place
+     *
+     * @param particles the buffer to move
+     */
+    void step(final ParticleBuffer particles);
+}
@@ -1,5 +1,11 @@
 package org.sims.interfaces;
 
+import java.io.*;
+import java.util.*;
+
+import org.sims.models.*;
+import org.sims.trajectory.SnapshotWriter;
+
 /**
  * Engines are used to run simulations step by step.
  *
@@ -17,4 +23,80 @@ public interface Engine<S extends Step> extends Iterable<S>, AutoCloseable {
      * @return the initial step
      */
     S initial();
+
+    /**
+     * Walk the steps without building them.
+     *
+     * The default cursor goes through {@link #iterator()},
+     * engines override it to only build the steps that are kept.
+     *
+     * @return a cursor before the first step after the initial one
+     */
+    default Cursor<S> cursor() {
+        final var steps = iterator();
+
+        return new Cursor<>() {
+            private S current;
+
+            @Override
+            public boolean advance() {
+                if (!steps.hasNext()) {
+                    return false;
+                }
+
+                current = steps.next();
+                return true;
+            }
+
+            @Override
+            public S step() {
+                return current;
+            }
+
+            @Override
+            public long i() {
+                return current.i();
+            }
+
+            @Override
+            public void saveTo(final Writer writer) throws IOException {
+                current.saveTo(writer);
+            }
+
+            @Override
+            public List<Particle> particles() {
+                return current.particles();
+            }
+
+            @Override
+            public boolean snapshot(final SnapshotWriter snapshots) throws IOException {
+                return current.snapshot(snapshots);
+            }
+        };
+    }
+
+    /**
+     * A live view of the engine's current step.
+     *
+     * Advancing moves the engine on in place, so reading the index,
+     * or saving the state straight to a snapshot writer, costs no step
+     * object. {@link #step()} builds one to keep past the next advance.
+     *
+     * @param <S> the type of steps the engine produces
+     */
+    interface Cursor<S extends Step> extends Step {
+        /**
+         * Move on to the next step
+         *
+         * @return false if the simulation is over
+         */
+        boolean advance();
+
+        /**
+         * Build the current step, detached from the engine
+         *
+         * @return the step
+         */
+        S step();
+    }
 }
@@ -0,0 +1,37 @@
+package org.sims.interfaces;
+
+/**
+ * A {@link BufferForce} that also knows its time derivative,
+ * the jerk, and can evaluate a subset of the particles.
+ *
+ * Used by Hermite schemes, which only recompute the
+ * particles due on each block step.
+ *
+ * @implNote Only the active slots of the output planes may be written.
+ */
+public interface JerkForce extends BufferForce {
+    /**
+     * Compute the acceleration and jerk of the active particles,
+     * pulled by every particle
+     *
+     * @param x      the x positions of every particle
+     * @param y      the y positions of every particle
+     * @param z      the z positions of every particle
+     * @param vx     the x velocities of every particle
+     * @param vy     the y velocities of every particle
+     * @param vz     the z velocities of every particle
+     * @param active the slots to evaluate, only the first count are read
+     * @param count  the number of active slots
+     * @param ax     the output x accelerations, indexed by slot
+     * @param ay     the output y accelerations, indexed by slot
+     * @param az     the output z accelerations, indexed by slot
+     * @param jx     the output x jerks, indexed by slot
+     * @param jy     the output y jerks, indexed by slot
+     * @param jz     the output z jerks, indexed by slot
+     */
+    void apply(final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz,
+            final int[] active, final int count,
+            final double[] ax, final double[] ay, final double[] az,
+            final double[] jx, final double[] jy, final double[] jz);
+}
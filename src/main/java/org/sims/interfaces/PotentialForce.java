@@ -0,0 +1,20 @@
+package org.sims.interfaces;
+
+import org.sims.models.*;
+
+/**
+ * A {@link BufferForce} that can also evaluate the potential
+ * energy of the particles, at the same cost as the force.
+ *
+ * Used by the diagnostics, so an approximate force doesn't
+ * fall back to an exact O(N^2) energy pass.
+ */
+public interface PotentialForce extends BufferForce {
+    /**
+     * Compute the total potential energy of the buffer
+     *
+     * @param particles the particles state
+     * @return the potential energy, every pair counted once
+     */
+    double potential(final ParticleBuffer particles);
+}
@@ -1,6 +1,10 @@
 package org.sims.interfaces;
 
 import java.io.*;
+import java.util.*;
+
+import org.sims.models.*;
+import org.sims.trajectory.SnapshotWriter;
 
 /**
  * A step in a simulation.
@@ -22,4 +26,24 @@ public interface Step {
      * @throws IOException if an I/O error occurs
      */
     void saveTo(final Writer writer) throws IOException;
+
+    /**
+     * The particles of the step, for the snapshot sinks
+     *
+     * @return the particles, empty if the step doesn't carry them
+     */
+    default List<Particle> particles() {
+        return List.of();
+    }
+
+    /**
+     * Queue the step in a snapshot writer
+     *
+     * @param snapshots the writer
+     * @return whether the snapshot was queued, false if dropped
+     * @throws IOException if a previous snapshot failed to save
+     */
+    default boolean snapshot(final SnapshotWriter snapshots) throws IOException {
+        return snapshots.submit(i(), particles());
+    }
 }
@@ -0,0 +1,47 @@
+package org.sims.interfaces;
+
+/**
+ * Decides whether a simulation can end before its last step.
+ *
+ * Conditions are evaluated in order, once per observed state,
+ * so they may keep track of previous states.
+ *
+ * @param <S> the type of state observed
+ */
+@FunctionalInterface
+public interface StopCondition<S> {
+    /**
+     * Observe a state
+     *
+     * @param state the current state
+     * @return true to end the simulation after this state
+     */
+    boolean done(final S state);
+
+    /**
+     * The state kept between observations, to save in a checkpoint
+     *
+     * @return the state, empty for conditions that keep none
+     */
+    default double[] state() {
+        return new double[0];
+    }
+
+    /**
+     * Continue from a saved {@link #state()}
+     *
+     * @param state the saved state, empty if there is none
+     */
+    default void restore(final double[] state) {
+    }
+
+    /**
+     * A condition that never ends the simulation
+     *
+     * @param <S> the type of state observed
+     * @return the condition
+     */
+    static <S> StopCondition<S> never() {
+        return state -> false;
+    }
+}
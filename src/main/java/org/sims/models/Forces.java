@@ -14,10 +14,192 @@ public abstract class Forces {
      * @return The force exerted by p2 on p1
      */
     public static Vector3 gravity(final Particle p1, final Particle p2) {
-        final var rij = p1.getPosition().subtract(p2.getPosition());
-        final var r2 = rij.norm2();
-        final var factor = -Math.pow(r2 + H * H, 1.5);
-        return rij.div(factor);
+        return gravity(p1, p2, new MutableVector3()).toVector3();
+    }
+
+    /**
+     * Newtonian gravity with softening, added to an accumulator
+     *
+     * @apiNote Assumes G = 1, m1 = m2 = 1
+     *
+     * @param p1  The first particle
+     * @param p2  The second particle
+     * @param sum The accumulator
+     * @return The accumulator, plus the force exerted by p2 on p1
+     */
+    public static MutableVector3 gravity(final Particle p1, final Particle p2, final MutableVector3 sum) {
+        final var r1 = p1.getPosition();
+        final var r2 = p2.getPosition();
+        final var dx = r1.x() - r2.x();
+        final var dy = r1.y() - r2.y();
+        final var dz = r1.z() - r2.z();
+        final var factor = -Math.pow(dx * dx + dy * dy + dz * dz + H * H, 1.5);
+
+        sum.x += dx / factor;
+        sum.y += dy / factor;
+        sum.z += dz / factor;
+        return sum;
+    }
+
+    /**
+     * Newtonian gravity with softening over arrays of positions.
+     *
+     * Visits every pair (i, j) with i in [from, to) and j > i once,
+     * adding the pull to both particles, as of Newton's third law.
+     *
+     * @apiNote Assumes G = 1, m1 = m2 = 1
+     * @apiNote The result is ADDED to the acceleration planes
+     *
+     * @param x    The x positions
+     * @param y    The y positions
+     * @param z    The z positions
+     * @param ax   The x accelerations
+     * @param ay   The y accelerations
+     * @param az   The z accelerations
+     * @param from The first row, inclusive
+     * @param to   The last row, exclusive
+     */
+    public static void gravity(final double[] x, final double[] y, final double[] z,
+            final double[] ax, final double[] ay, final double[] az, final int from, final int to) {
+        final var n = x.length;
+        final var h2 = H * H;
+
+        for (int i = from; i < to; i++) {
+            final var xi = x[i];
+            final var yi = y[i];
+            final var zi = z[i];
+            double sx = 0, sy = 0, sz = 0;
+
+            for (int j = i + 1; j < n; j++) {
+                final var dx = xi - x[j];
+                final var dy = yi - y[j];
+                final var dz = zi - z[j];
+                final var r2 = dx * dx + dy * dy + dz * dz + h2;
+                final var inv = 1.0 / (r2 * Math.sqrt(r2));
+
+                final var fx = dx * inv;
+                final var fy = dy * inv;
+                final var fz = dz * inv;
+
+                sx -= fx;
+                sy -= fy;
+                sz -= fz;
+                ax[j] += fx;
+                ay[j] += fy;
+                az[j] += fz;
+            }
+
+            ax[i] += sx;
+            ay[i] += sy;
+            az[i] += sz;
+        }
+    }
+
+    /**
+     * Newtonian gravity with softening and its time derivative,
+     * for a subset of the particles.
+     *
+     * Each active particle visits every other one, so rows are
+     * independent and can be split freely between workers.
+     *
+     * @apiNote Assumes G = 1, m1 = m2 = 1
+     * @apiNote The result OVERWRITES the active slots of the output planes
+     *
+     * @param x      The x positions
+     * @param y      The y positions
+     * @param z      The z positions
+     * @param vx     The x velocities
+     * @param vy     The y velocities
+     * @param vz     The z velocities
+     * @param active The slots to evaluate
+     * @param from   The first active index, inclusive
+     * @param to     The last active index, exclusive
+     * @param ax     The x accelerations
+     * @param ay     The y accelerations
+     * @param az     The z accelerations
+     * @param jx     The x jerks
+     * @param jy     The y jerks
+     * @param jz     The z jerks
+     */
+    public static void gravity(final double[] x, final double[] y, final double[] z,
+            final double[] vx, final double[] vy, final double[] vz,
+            final int[] active, final int from, final int to,
+            final double[] ax, final double[] ay, final double[] az,
+            final double[] jx, final double[] jy, final double[] jz) {
+        final var n = x.length;
+        final var h2 = H * H;
+
+        for (int k = from; k < to; k++) {
+            final var i = active[k];
+            double sax = 0, say = 0, saz = 0;
+            double sjx = 0, sjy = 0, sjz = 0;
+
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+
+                final var dx = x[j] - x[i];
+                final var dy = y[j] - y[i];
+                final var dz = z[j] - z[i];
+                final var dvx = vx[j] - vx[i];
+                final var dvy = vy[j] - vy[i];
+                final var dvz = vz[j] - vz[i];
+
+                final var r2 = dx * dx + dy * dy + dz * dz + h2;
+                final var inv = 1.0 / (r2 * Math.sqrt(r2));
+                final var rv = 3 * (dx * dvx + dy * dvy + dz * dvz) / r2;
+
+                sax += dx * inv;
+                say += dy * inv;
+                saz += dz * inv;
+                sjx += (dvx - rv * dx) * inv;
+                sjy += (dvy - rv * dy) * inv;
+                sjz += (dvz - rv * dz) * inv;
+            }
+
+            ax[i] = sax;
+            ay[i] = say;
+            az[i] = saz;
+            jx[i] = sjx;
+            jy[i] = sjy;
+            jz[i] = sjz;
+        }
+    }
+
+    /**
+     * Softened gravitational potential energy over arrays of positions.
+     *
+     * Same pair loop as {@link #gravity(double[], double[], double[], double[], double[], double[], int, int)},
+     * so the rows can be split the same way.
+     *
+     * @apiNote Assumes G = 1, m1 = m2 = 1
+     *
+     * @param x    The x positions
+     * @param y    The y positions
+     * @param z    The z positions
+     * @param from The first row, inclusive
+     * @param to   The last row, exclusive
+     * @return The sum of -1 / sqrt(r^2 + H^2) over the pairs of the rows
+     */
+    public static double potential(final double[] x, final double[] y, final double[] z, final int from, final int to) {
+        final var n = x.length;
+        final var h2 = H * H;
+
+        double e = 0;
+        for (int i = from; i < to; i++) {
+            final var xi = x[i];
+            final var yi = y[i];
+            final var zi = z[i];
+
+            for (int j = i + 1; j < n; j++) {
+                final var dx = xi - x[j];
+                final var dy = yi - y[j];
+                final var dz = zi - z[j];
+                e -= 1.0 / Math.sqrt(dx * dx + dy * dy + dz * dz + h2);
+            }
+        }
+        return e;
     }
 
     /**
@@ -30,9 +212,10 @@ public abstract class Forces {
      * @return
      */
     public static Vector3 oscillator(final Particle p, final double k, final double gamma, final double mass) {
-        return p.getPosition()
-                .mult(-k)
-                .subtract(p.getVelocity().mult(gamma))
-                .div(mass);
+        return new MutableVector3()
+                .set(p.getPosition(), -k)
+                .add(p.getVelocity(), -gamma)
+                .div(mass)
+                .toVector3();
     }
 }
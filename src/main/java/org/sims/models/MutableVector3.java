@@ -0,0 +1,92 @@
+package org.sims.models;
+
+import java.util.Locale;
+
+/**
+ * A reusable 3D accumulator, to fuse {@link Vector3} expressions.
+ *
+ * Every operation updates the vector in place and returns it, so
+ * a chain such as r + v*dt + a*dt² - m*dt²/6 costs no temporaries,
+ * and only {@link #toVector3()} allocates.
+ *
+ * @apiNote Not thread-safe, keep one per thread or per stream pipeline.
+ */
+public final class MutableVector3 {
+    public double x, y, z;
+
+    public MutableVector3() {
+    }
+
+    public MutableVector3(final Vector3 v) {
+        set(v);
+    }
+
+    public MutableVector3 set(final double x, final double y, final double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public MutableVector3 set(final Vector3 v) {
+        return set(v.x(), v.y(), v.z());
+    }
+
+    /**
+     * this = s * v
+     */
+    public MutableVector3 set(final Vector3 v, final double s) {
+        return set(s * v.x(), s * v.y(), s * v.z());
+    }
+
+    public MutableVector3 add(final Vector3 v) {
+        x += v.x();
+        y += v.y();
+        z += v.z();
+        return this;
+    }
+
+    public MutableVector3 add(final MutableVector3 v) {
+        x += v.x;
+        y += v.y;
+        z += v.z;
+        return this;
+    }
+
+    /**
+     * this += s * v, the axpy update
+     */
+    public MutableVector3 add(final Vector3 v, final double s) {
+        x += s * v.x();
+        y += s * v.y();
+        z += s * v.z();
+        return this;
+    }
+
+    public MutableVector3 scale(final double s) {
+        x *= s;
+        y *= s;
+        z *= s;
+        return this;
+    }
+
+    public MutableVector3 div(final double s) {
+        x /= s;
+        y /= s;
+        z /= s;
+        return this;
+    }
+
+    public double norm2() {
+        return x * x + y * y + z * z;
+    }
+
+    public Vector3 toVector3() {
+        return new Vector3(x, y, z);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%.14f %.14f %.14f", x, y, z);
+    }
+}
@@ -1,6 +1,8 @@
 package org.sims.models;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
 
 import org.sims.interfaces.*;
 
@@ -14,7 +16,7 @@ import org.sims.interfaces.*;
  *
  */
 public class Particle implements Named{
-    private static long SERIAL = 0L;
+    private static final AtomicLong SERIAL = new AtomicLong();
     private final long ID;
     private Vector3 position;
     private Vector3 velocity;
@@ -31,7 +33,7 @@ public class Particle implements Named{
      * @param memory   The algorithm-specific data
      */
     private Particle(final Vector3 position, final Vector3 velocity, final double radius, final Vector3 memory) {
-        this.ID = SERIAL++;
+        this.ID = SERIAL.getAndIncrement();
         this.position = position;
         this.velocity = velocity;
         this.radius = radius;
@@ -66,6 +68,53 @@ public class Particle implements Named{
         this.radius = p.radius;
     }
 
+    /**
+     * Recreate a saved particle, keeping its ID.
+     *
+     * @apiNote Meant for checkpoint restores only, it does
+     * not advance the ID serial, see {@link #restoreSerial(long)}.
+     *
+     * @param ID          The saved ID
+     * @param position    The saved position
+     * @param velocity    The saved velocity
+     * @param radius      The radius of the particle
+     * @param memory      The saved memory, may be null
+     * @param derivatives The saved Gear derivatives, may be null
+     * @return The restored particle
+     */
+    public static Particle restore(final long ID, final Vector3 position, final Vector3 velocity, final double radius,
+            final Vector3 memory, final List<Vector3> derivatives) {
+        final var p = new Particle(ID, position, velocity, radius);
+        p.memory = memory;
+        p.derivatives = derivatives;
+        return p;
+    }
+
+    private Particle(final long ID, final Vector3 position, final Vector3 velocity, final double radius) {
+        this.ID = ID;
+        this.position = position;
+        this.velocity = velocity;
+        this.radius = radius;
+    }
+
+    /**
+     * The ID the next particle will get
+     *
+     * @return the current serial
+     */
+    public static long serial() {
+        return SERIAL.get();
+    }
+
+    /**
+     * Restore the ID serial saved in a checkpoint
+     *
+     * @param serial the ID the next particle will get
+     */
+    public static void restoreSerial(final long serial) {
+        SERIAL.set(serial);
+    }
+
     public Particle(Particle p, List<Vector3> derivatives) {
         //replaciong position and velocity by derivatives 0 and 1 -> same thing but updated
         this(p, derivatives.get(0), derivatives.get(1));
@@ -76,14 +125,16 @@ public class Particle implements Named{
         double k = springConstant;
         double m = particleMass;
         double gamma = dampeningConstant;
-        Vector3 r0 = position;
-        Vector3 r1 = velocity;
-        Vector3 r2 = r0.mult(-k/m).add(r1.mult(-gamma/m));
-        Vector3 r3 = r1.mult(-k/m).add(r2.mult(-gamma/m));
-        Vector3 r4 = r2.mult(-k/m).add(r3.mult(-gamma/m));
-        Vector3 r5 = r3.mult(-k/m).add(r4.mult(-gamma/m));
+        // r_k = -k/m r_(k-2) - gamma/m r_(k-1)
+        final var r = new Vector3[ParticleBuffer.ORDER + 1];
+        final var next = new MutableVector3();
+        r[0] = position;
+        r[1] = velocity;
+        for (int i = 2; i < r.length; i++) {
+            r[i] = next.set(r[i - 2], -k/m).add(r[i - 1], -gamma/m).toVector3();
+        }
 
-        this.derivatives = List.of(r0, r1, r2, r3, r4, r5);
+        this.derivatives = List.of(r);
     }
     public List<Vector3> initializeGearGravityDerivatives(Vector3 position, Vector3 velocity){
         //mu = G*m*m
@@ -122,8 +173,20 @@ public class Particle implements Named{
      * @return A list of particles
      */
     public static List<Particle> spawnGalaxy(final long N, final Vector3 nucleous, final double galaxyRadius, final double particleRadius, final double velocityMagnitude){
+        return spawnGalaxy(N, nucleous, galaxyRadius, particleRadius, velocityMagnitude, new Random());
+    }
+
+    /**
+     * Creates N particles around a nucleous to simulate a galaxy.
+     * @param N The number of particles to create
+     * @param nucleous The position of the nucleous
+     * @param galaxyRadius The maximum distance from the nucleous
+     * @param random The random source, seed it to reproduce the galaxy
+     * @return A list of particles
+     */
+    public static List<Particle> spawnGalaxy(final long N, final Vector3 nucleous, final double galaxyRadius, final double particleRadius, final double velocityMagnitude,
+            final RandomGenerator random){
         List<Particle> particles = new ArrayList<>();
-        Random random = new Random();
         for(int i=0; i<N; i++){
             double randPositionX = (random.nextGaussian()) * galaxyRadius;
             double randPositionY = (random.nextGaussian()) * galaxyRadius;
@@ -157,8 +220,21 @@ public class Particle implements Named{
     public static List<Particle> spawnGalaxy(final long N, final Vector3 nucleous, final double galaxyRadius,
             final double particleRadius, final double velocityMagnitude,
             boolean collision, final double velocityXMagnitude) {
+        return spawnGalaxy(N, nucleous, galaxyRadius, particleRadius, velocityMagnitude, collision, velocityXMagnitude, new Random());
+    }
+
+    /**
+     * Creates N particles around a nucleous to simulate a galaxy.
+     * @param N The number of particles to create
+     * @param nucleous The position of the nucleous
+     * @param galaxyRadius The maximum distance from the nucleous
+     * @param random The random source, seed it to reproduce the galaxy
+     * @return A list of particles
+     */
+    public static List<Particle> spawnGalaxy(final long N, final Vector3 nucleous, final double galaxyRadius,
+            final double particleRadius, final double velocityMagnitude,
+            boolean collision, final double velocityXMagnitude, final RandomGenerator random) {
                 List<Particle> particles = new ArrayList<>();
-                Random random = new Random();
 
                 for (int i = 0; i < N; i++) {
                     // Posiciones aleatorias gaussianas alrededor del núcleo
@@ -249,8 +325,8 @@ public class Particle implements Named{
     public Vector3 gravity(final Collection<Particle> particles) {
         return particles.parallelStream()
                 .filter(p -> p.ID != this.ID)
-                .map(p -> Forces.gravity(this, p))
-                .reduce(Vector3.ZERO, Vector3::add);
+                .collect(MutableVector3::new, (sum, p) -> Forces.gravity(this, p, sum), MutableVector3::add)
+                .toVector3();
     }
 
     @Override
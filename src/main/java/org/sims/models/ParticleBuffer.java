@@ -0,0 +1,213 @@
+package org.sims.models;
+
+import java.util.*;
+
+/**
+ * A structure-of-arrays store for particle states.
+ *
+ * Every quantity is kept as one primitive plane per axis,
+ * indexed by the particle's slot in the buffer, so forces
+ * and integrators can work over contiguous memory and
+ * update the state in place without allocating.
+ *
+ * Slots are dense, from 0 to size() - 1, and follow the
+ * iteration order of the collection used to build the buffer.
+ * The original particles are kept to preserve their IDs and
+ * radii when the state is materialized back.
+ *
+ * @apiNote Gear derivatives alias the position and velocity
+ * planes, {@code dx[0] == x} and {@code dx[1] == vx}.
+ */
+public final class ParticleBuffer {
+    /**
+     * Highest derivative order stored for Gear integrators
+     */
+    public static final int ORDER = 5;
+
+    private final List<Particle> particles;
+
+    public final long[] ids;
+    public final double[] x, y, z;
+    public final double[] vx, vy, vz;
+    public final double[] ax, ay, az;
+
+    /**
+     * Integrator memory, as in {@link Particle#getMemory()}
+     */
+    public final double[] mx, my, mz;
+
+    /**
+     * Spare planes for integrators that need two accelerations at once
+     */
+    public final double[] sx, sy, sz;
+
+    /**
+     * Gear derivatives, indexed by [order][slot]
+     */
+    public final double[][] dx, dy, dz;
+
+    private ParticleBuffer(final List<Particle> particles) {
+        final var n = particles.size();
+        this.particles = particles;
+
+        this.ids = new long[n];
+        this.x = new double[n];
+        this.y = new double[n];
+        this.z = new double[n];
+        this.vx = new double[n];
+        this.vy = new double[n];
+        this.vz = new double[n];
+        this.ax = new double[n];
+        this.ay = new double[n];
+        this.az = new double[n];
+        this.mx = new double[n];
+        this.my = new double[n];
+        this.mz = new double[n];
+        this.sx = new double[n];
+        this.sy = new double[n];
+        this.sz = new double[n];
+
+        this.dx = derivatives(x, vx, n);
+        this.dy = derivatives(y, vy, n);
+        this.dz = derivatives(z, vz, n);
+    }
+
+    private static double[][] derivatives(final double[] pos, final double[] vel, final int n) {
+        final var d = new double[ORDER + 1][];
+        d[0] = pos;
+        d[1] = vel;
+        for (int k = 2; k <= ORDER; k++) {
+            d[k] = new double[n];
+        }
+        return d;
+    }
+
+    /**
+     * Copy the state of a collection of particles into a new buffer
+     *
+     * @param particles the particles to copy
+     * @return the buffer, with slots in iteration order
+     */
+    public static ParticleBuffer of(final Collection<Particle> particles) {
+        final var buffer = new ParticleBuffer(List.copyOf(particles));
+
+        for (int i = 0; i < buffer.size(); i++) {
+            final var p = buffer.particles.get(i);
+            buffer.ids[i] = p.getID();
+            buffer.set(i, p.getPosition(), p.getVelocity());
+
+            if (p.getMemory() != null) {
+                buffer.setMemory(i, p.getMemory());
+            }
+
+            if (p.getDerivatives() != null) {
+                final var d = p.getDerivatives();
+                for (int k = 2; k < d.size() && k <= ORDER; k++) {
+                    buffer.dx[k][i] = d.get(k).x();
+                    buffer.dy[k][i] = d.get(k).y();
+                    buffer.dz[k][i] = d.get(k).z();
+                }
+            }
+        }
+
+        return buffer;
+    }
+
+    /**
+     * The number of particles in the buffer
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Overwrite the position and velocity of a slot
+     *
+     * @param i   the slot
+     * @param pos the new position
+     * @param vel the new velocity
+     */
+    public void set(final int i, final Vector3 pos, final Vector3 vel) {
+        x[i] = pos.x();
+        y[i] = pos.y();
+        z[i] = pos.z();
+        vx[i] = vel.x();
+        vy[i] = vel.y();
+        vz[i] = vel.z();
+    }
+
+    /**
+     * Overwrite the memory of a slot
+     *
+     * @param i      the slot
+     * @param memory the new memory
+     */
+    public void setMemory(final int i, final Vector3 memory) {
+        mx[i] = memory.x();
+        my[i] = memory.y();
+        mz[i] = memory.z();
+    }
+
+    public Vector3 position(final int i) {
+        return new Vector3(x[i], y[i], z[i]);
+    }
+
+    public Vector3 velocity(final int i) {
+        return new Vector3(vx[i], vy[i], vz[i]);
+    }
+
+    public Vector3 acceleration(final int i) {
+        return new Vector3(ax[i], ay[i], az[i]);
+    }
+
+    public Vector3 memory(final int i) {
+        return new Vector3(mx[i], my[i], mz[i]);
+    }
+
+    /**
+     * The particle originally stored in a slot
+     *
+     * @apiNote Its state is the one at the time of copy,
+     * use {@link #particle(int)} for the current one.
+     *
+     * @param i the slot
+     * @return the original particle
+     */
+    public Particle source(final int i) {
+        return particles.get(i);
+    }
+
+    /**
+     * Materialize the current state of a slot
+     *
+     * @param i the slot
+     * @return a new particle with the ID of the original
+     */
+    public Particle particle(final int i) {
+        final var p = new Particle(particles.get(i), position(i), velocity(i));
+        p.setMemory(memory(i));
+
+        final var d = new ArrayList<Vector3>(ORDER + 1);
+        for (int k = 0; k <= ORDER; k++) {
+            d.add(new Vector3(dx[k][i], dy[k][i], dz[k][i]));
+        }
+        p.setDerivatives(List.copyOf(d));
+
+        return p;
+    }
+
+    /**
+     * Materialize the current state of every slot
+     *
+     * @return the particles, in slot order
+     */
+    public List<Particle> toParticles() {
+        final var list = new ArrayList<Particle>(size());
+        for (int i = 0; i < size(); i++) {
+            list.add(particle(i));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,56 @@
+package org.sims.models;
+
+/**
+ * Fused in-place updates over slices of the {@link ParticleBuffer} planes.
+ *
+ * Each call is a single pass over its arrays, so a whole update
+ * formula reads every operand once and writes its target once.
+ */
+public abstract class Vectors {
+    /**
+     * y += a * x, over [0, y.length)
+     */
+    public static void axpy(final double[] y, final double a, final double[] x) {
+        axpy(y, a, x, 0, y.length);
+    }
+
+    /**
+     * y += a * x, over [from, to)
+     */
+    public static void axpy(final double[] y, final double a, final double[] x, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            y[i] += a * x[i];
+        }
+    }
+
+    /**
+     * y += a * x + b * w, over [from, to)
+     */
+    public static void axpy(final double[] y, final double a, final double[] x, final double b, final double[] w,
+            final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            y[i] += a * x[i] + b * w[i];
+        }
+    }
+
+    /**
+     * y += a * x + b * w + c * u, over [from, to)
+     */
+    public static void axpy(final double[] y, final double a, final double[] x, final double b, final double[] w,
+            final double c, final double[] u, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            y[i] += a * x[i] + b * w[i] + c * u[i];
+        }
+    }
+
+    /**
+     * Shift a history of planes by one: older = old, old = young, over [from, to)
+     *
+     * @apiNote The young plane is left as is
+     */
+    public static void shift(final double[] older, final double[] old, final double[] young,
+            final int from, final int to) {
+        System.arraycopy(old, from, older, from, to - from);
+        System.arraycopy(young, from, old, from, to - from);
+    }
+}
@@ -0,0 +1,39 @@
+package org.sims.oscillator;
+
+import java.util.*;
+
+import org.sims.interfaces.*;
+import org.sims.models.*;
+
+/**
+ * Damped harmonic oscillation with its own constants per slot,
+ * so independent oscillators can share one buffer.
+ *
+ * @param k     the spring constant of each slot
+ * @param gamma the damping coefficient of each slot
+ * @param mass  the mass of each slot
+ */
+public record EnsembleForce(double[] k, double[] gamma, double[] mass) implements Force<Particle>, BufferForce {
+    public EnsembleForce {
+        if (k.length != gamma.length || k.length != mass.length) {
+            throw new IllegalArgumentException("Expected the same number of k, gamma and mass values");
+        }
+    }
+
+    /**
+     * @apiNote The particles are matched to the constants by iteration order
+     */
+    @Override
+    public Map<Particle, Vector3> apply(final Collection<Particle> particles) {
+        return BufferForce.map(this, particles);
+    }
+
+    @Override
+    public void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        for (int i = 0; i < particles.size(); i++) {
+            ax[i] = (particles.x[i] * -k[i] - particles.vx[i] * gamma[i]) / mass[i];
+            ay[i] = (particles.y[i] * -k[i] - particles.vy[i] * gamma[i]) / mass[i];
+            az[i] = (particles.z[i] * -k[i] - particles.vz[i] * gamma[i]) / mass[i];
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.sims.oscillator;
 
+import java.io.*;
 import java.util.*;
 
 import org.sims.interfaces.*;
 import org.sims.models.*;
+import org.sims.trajectory.SnapshotWriter;
 
 public record OscillatorEngine(Simulation<Particle, OscillatorStep> simulation) implements Engine<OscillatorStep> {
     @Override
@@ -13,19 +15,69 @@ public record OscillatorEngine(Simulation<Particle, OscillatorStep> simulation)
 
     @Override
     public Iterator<OscillatorStep> iterator() {
-        return new Iterator<>() {
-            private long current = 0;
-            private List<Particle> p = simulation.entities();
+        final var cursor = cursor();
 
+        return new Iterator<>() {
             @Override
             public boolean hasNext() {
-                return current < simulation.steps();
+                return cursor.i() < simulation.steps();
             }
 
             @Override
             public OscillatorStep next() {
+                if (!cursor.advance()) {
+                    throw new NoSuchElementException();
+                }
+                return cursor.step();
+            }
+        };
+    }
+
+    /**
+     * Only the integration runs on every step, the
+     * {@link OscillatorStep} is built when asked for.
+     */
+    @Override
+    public Cursor<OscillatorStep> cursor() {
+        return new Cursor<>() {
+            private long current = 0;
+            private List<Particle> p = simulation.entities();
+
+            @Override
+            public boolean advance() {
+                if (current >= simulation.steps()) {
+                    return false;
+                }
+
                 p = simulation.integrator().step(p);
-                return new OscillatorStep(++current, p.getFirst());
+                current++;
+                return true;
+            }
+
+            @Override
+            public OscillatorStep step() {
+                return new OscillatorStep(current, p.getFirst());
+            }
+
+            @Override
+            public long i() {
+                return current;
+            }
+
+            @Override
+            public void saveTo(final Writer writer) throws IOException {
+                writer.write(p.getFirst().toString());
+                writer.write('\n');
+            }
+
+            @Override
+            public List<Particle> particles() {
+                return p;
+            }
+
+            @Override
+            public boolean snapshot(final SnapshotWriter snapshots) throws IOException {
+                return snapshots.submit(current, p);
             }
         };
     }
@@ -0,0 +1,159 @@
+package org.sims.oscillator;
+
+import java.util.*;
+import java.util.stream.*;
+
+import org.sims.integrals.*;
+import org.sims.interfaces.*;
+import org.sims.models.*;
+
+/**
+ * Many independent damped oscillators, advanced together.
+ *
+ * Oscillators sharing an integrator and a dt are stacked in one
+ * {@link ParticleBuffer}, one slot each, with an {@link EnsembleForce}
+ * holding their constants, so every step of a group is a single pass
+ * of the usual array-based integrator. Groups run in parallel.
+ *
+ * Every oscillator starts at x = 1 at rest, same as {@link OscillatorSimulation},
+ * and its error against the analytic solution is accumulated on every step.
+ */
+public abstract class OscillatorEnsemble {
+    /**
+     * An oscillator of the ensemble
+     *
+     * @param integrator "verlet", "beeman", "gearposition" or "gearvelocity"
+     * @param dt         the time step
+     * @param k          the spring constant
+     * @param gamma      the damping coefficient
+     * @param mass       the mass
+     */
+    public record Member(String integrator, double dt, double k, double gamma, double mass) {
+    }
+
+    /**
+     * The outcome of an oscillator
+     *
+     * @param member   the oscillator
+     * @param name     the integrator name
+     * @param steps    the steps simulated
+     * @param mse      the mean squared error of x over every step
+     * @param maxError the largest absolute error of x
+     * @param x        the final position
+     */
+    public record Result(Member member, String name, long steps, double mse, double maxError, double x) {
+    }
+
+    /**
+     * Simulate every oscillator for the same time
+     *
+     * @param members the oscillators
+     * @param seconds the simulated time
+     * @return the results, in the same order as the members
+     */
+    public static List<Result> run(final List<Member> members, final double seconds) {
+        final var groups = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < members.size(); i++) {
+            final var m = members.get(i);
+            groups.computeIfAbsent(m.integrator() + " " + m.dt(), key -> new ArrayList<>()).add(i);
+        }
+
+        final var results = new Result[members.size()];
+        groups.values().parallelStream().forEach(slots -> {
+            final var group = slots.stream().map(members::get).toList();
+            final var out = group(group, seconds);
+            for (int s = 0; s < slots.size(); s++) {
+                results[slots.get(s)] = out.get(s);
+            }
+        });
+
+        return List.of(results);
+    }
+
+    /**
+     * Simulate oscillators sharing an integrator and a dt, in lock-step
+     */
+    private static List<Result> group(final List<Member> members, final double seconds) {
+        final var n = members.size();
+        final var first = members.getFirst();
+        final var dt = first.dt();
+
+        final var force = new EnsembleForce(
+                members.stream().mapToDouble(Member::k).toArray(),
+                members.stream().mapToDouble(Member::gamma).toArray(),
+                members.stream().mapToDouble(Member::mass).toArray());
+
+        final List<Particle> particles = IntStream.range(0, n)
+                .mapToObj(i -> new Particle(new Vector3(1, 0, 0), Vector3.ZERO, 1.0))
+                .toList();
+
+        final BufferIntegrator integrator = switch (first.integrator()) {
+            case "verlet" -> new Verlet(dt, force);
+            case "beeman" -> new BeemanIntegrator(dt, force, particles);
+            case "gearposition", "gearvelocity" -> {
+                for (int i = 0; i < n; i++) {
+                    final var p = particles.get(i);
+                    p.initializeGearSpringDerivatives(p.getPosition(), p.getVelocity(),
+                            force.k()[i], force.mass()[i], force.gamma()[i]);
+                }
+                yield new GearIntegrator(dt, force,
+                        first.integrator().equals("gearposition") ? GearType.POSITION : GearType.VELOCITY);
+            }
+            default -> throw new IllegalArgumentException("Unknown integration method: " + first.integrator()
+                    + ", available methods: gearposition, gearvelocity, verlet, beeman");
+        };
+
+        final var buffer = ParticleBuffer.of(particles);
+        integrator.prepare(buffer);
+
+        final long steps = Math.round(seconds / dt);
+        final var squared = new double[n];
+        final var max = new double[n];
+
+        for (long s = 1; s <= steps; s++) {
+            integrator.step(buffer);
+
+            final var t = s * dt;
+            for (int i = 0; i < n; i++) {
+                final var e = Math.abs(buffer.x[i] - exact(force.k()[i], force.gamma()[i], force.mass()[i], t));
+                squared[i] += e * e;
+                max[i] = Math.max(max[i], e);
+            }
+        }
+
+        final var results = new ArrayList<Result>(n);
+        for (int i = 0; i < n; i++) {
+            results.add(new Result(members.get(i), integrator.name(), steps,
+                    steps > 0 ? squared[i] / steps : 0, max[i], buffer.x[i]));
+        }
+        return results;
+    }
+
+    /**
+     * The analytic position of a damped oscillator released at x = 1 at rest
+     *
+     * @param k     the spring constant
+     * @param gamma the damping coefficient
+     * @param mass  the mass
+     * @param t     the time
+     * @return x(t)
+     */
+    public static double exact(final double k, final double gamma, final double mass, final double t) {
+        final var beta = gamma / (2 * mass);
+        final var w2 = k / mass - beta * beta;
+
+        if (w2 > 0) {
+            final var w = Math.sqrt(w2);
+            return Math.exp(-beta * t) * (Math.cos(w * t) + beta / w * Math.sin(w * t));
+        }
+        if (w2 == 0) {
+            return Math.exp(-beta * t) * (1 + beta * t);
+        }
+
+        // Overdamped, x = (r2 e^(r1 t) - r1 e^(r2 t)) / (r2 - r1)
+        final var root = Math.sqrt(-w2);
+        final var r1 = -beta + root;
+        final var r2 = -beta - root;
+        return (r2 * Math.exp(r1 * t) - r1 * Math.exp(r2 * t)) / (r2 - r1);
+    }
+}
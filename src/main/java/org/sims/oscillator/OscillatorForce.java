@@ -7,11 +7,20 @@ import java.util.stream.*;
 import org.sims.interfaces.*;
 import org.sims.models.*;
 
-public record OscillatorForce(double k, double gamma, double mass) implements Force<Particle> {
+public record OscillatorForce(double k, double gamma, double mass) implements Force<Particle>, BufferForce {
     @Override
     public Map<Particle, Vector3> apply(final Collection<Particle> particles) {
         return particles.stream().collect(Collectors.toMap(Function.identity(), p -> {
             return Forces.oscillator(p, k, gamma, mass);
         }));
     }
+
+    @Override
+    public void apply(final ParticleBuffer particles, final double[] ax, final double[] ay, final double[] az) {
+        for (int i = 0; i < particles.size(); i++) {
+            ax[i] = (particles.x[i] * -k - particles.vx[i] * gamma) / mass;
+            ay[i] = (particles.y[i] * -k - particles.vy[i] * gamma) / mass;
+            az[i] = (particles.z[i] * -k - particles.vz[i] * gamma) / mass;
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package org.sims.oscillator;
 
 import java.io.*;
+import java.util.*;
 
 import org.sims.interfaces.Step;
 import org.sims.models.*;
@@ -11,4 +12,9 @@ public record OscillatorStep(long i, Particle particle) implements Step {
         writer.write(particle.toString());
         writer.write('\n');
     }
+
+    @Override
+    public List<Particle> particles() {
+        return List.of(particle);
+    }
 }
@@ -0,0 +1,183 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.sims.models.*;
+
+/**
+ * The complete state of a run, to resume it later.
+ *
+ * Every double is stored with its exact bits, so a
+ * resumed run continues exactly where the saved one was.
+ *
+ * @param step          the next step to integrate
+ * @param serial        the particle ID serial, see {@link Particle#serial()}
+ * @param integrator    the integrator name, to validate the resume
+ * @param dt            the time step, to validate the resume
+ * @param particles     the particles, with IDs, memories and Gear derivatives
+ * @param accelerations the current acceleration of each particle, in the same order
+ * @param stop          the stop condition state, see {@link org.sims.interfaces.StopCondition#state()}
+ */
+public record Checkpoint(long step, long serial, String integrator, double dt,
+        List<Particle> particles, List<Vector3> accelerations, double[] stop) {
+    private static final int MAGIC = 0x54503443; // "TP4C"
+    private static final int VERSION = 2;
+
+    /**
+     * A checkpoint without stop condition state
+     */
+    public Checkpoint(final long step, final long serial, final String integrator, final double dt,
+            final List<Particle> particles, final List<Vector3> accelerations) {
+        this(step, serial, integrator, dt, particles, accelerations, new double[0]);
+    }
+
+    /**
+     * Snapshot a particles buffer
+     *
+     * @param step       the next step to integrate
+     * @param integrator the integrator name
+     * @param dt         the time step
+     * @param particles  the buffer
+     * @return the checkpoint
+     */
+    public static Checkpoint of(final long step, final String integrator, final double dt, final ParticleBuffer particles) {
+        final var accelerations = new ArrayList<Vector3>(particles.size());
+        for (int i = 0; i < particles.size(); i++) {
+            accelerations.add(particles.acceleration(i));
+        }
+
+        return new Checkpoint(step, Particle.serial(), integrator, dt, particles.toParticles(), accelerations);
+    }
+
+    /**
+     * The same checkpoint, with the state of the stop condition
+     *
+     * @param stop the stop condition state
+     * @return the checkpoint
+     */
+    public Checkpoint with(final double[] stop) {
+        return new Checkpoint(step, serial, integrator, dt, particles, accelerations, stop);
+    }
+
+    /**
+     * Write the checkpoint, replacing the previous one only once fully written
+     *
+     * @param path the checkpoint file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(final Path path) throws IOException {
+        final var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (final var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(step);
+            out.writeLong(serial);
+            out.writeUTF(integrator);
+            out.writeDouble(dt);
+            out.writeInt(particles.size());
+
+            for (int i = 0; i < particles.size(); i++) {
+                final var p = particles.get(i);
+                out.writeLong(p.getID());
+                out.writeDouble(p.getRadius());
+                write(out, p.getPosition());
+                write(out, p.getVelocity());
+                write(out, accelerations.get(i));
+
+                out.writeBoolean(p.getMemory() != null);
+                if (p.getMemory() != null) {
+                    write(out, p.getMemory());
+                }
+
+                final var d = p.getDerivatives();
+                out.writeInt(d == null ? 0 : d.size());
+                if (d != null) {
+                    for (final var v : d) {
+                        write(out, v);
+                    }
+                }
+            }
+
+            out.writeInt(stop.length);
+            for (final var v : stop) {
+                out.writeDouble(v);
+            }
+        }
+
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a checkpoint
+     *
+     * @apiNote It doesn't restore the particle serial,
+     * use {@link Particle#restoreSerial(long)} with {@link #serial()}.
+     *
+     * @param path the checkpoint file
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read or isn't a checkpoint
+     */
+    public static Checkpoint load(final Path path) throws IOException {
+        try (final var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a checkpoint file: " + path);
+            }
+
+            final var version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported checkpoint version %d in %s".formatted(version, path));
+            }
+
+            final var step = in.readLong();
+            final var serial = in.readLong();
+            final var integrator = in.readUTF();
+            final var dt = in.readDouble();
+            final var n = in.readInt();
+
+            final var particles = new ArrayList<Particle>(n);
+            final var accelerations = new ArrayList<Vector3>(n);
+            for (int i = 0; i < n; i++) {
+                final var id = in.readLong();
+                final var radius = in.readDouble();
+                final var position = read(in);
+                final var velocity = read(in);
+                accelerations.add(read(in));
+
+                final var memory = in.readBoolean() ? read(in) : null;
+
+                final var order = in.readInt();
+                List<Vector3> derivatives = null;
+                if (order > 0) {
+                    final var d = new ArrayList<Vector3>(order);
+                    for (int k = 0; k < order; k++) {
+                        d.add(read(in));
+                    }
+                    derivatives = List.copyOf(d);
+                }
+
+                particles.add(Particle.restore(id, position, velocity, radius, memory, derivatives));
+            }
+
+            // Version 1 had no stop condition state
+            final var stop = new double[version > 1 ? in.readInt() : 0];
+            for (int i = 0; i < stop.length; i++) {
+                stop[i] = in.readDouble();
+            }
+
+            return new Checkpoint(step, serial, integrator, dt, particles, accelerations, stop);
+        }
+    }
+
+    private static void write(final DataOutputStream out, final Vector3 v) throws IOException {
+        out.writeDouble(v.x());
+        out.writeDouble(v.y());
+        out.writeDouble(v.z());
+    }
+
+    private static Vector3 read(final DataInputStream in) throws IOException {
+        return new Vector3(in.readDouble(), in.readDouble(), in.readDouble());
+    }
+}
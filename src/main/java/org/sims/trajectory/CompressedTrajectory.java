@@ -0,0 +1,65 @@
+package org.sims.trajectory;
+
+import java.nio.ByteOrder;
+
+/**
+ * The compressed trajectory layout, shared by the writer and the reader.
+ *
+ * Frames hold the same x y z vx vy vz values as a {@link Trajectory},
+ * grouped in blocks of consecutive frames. Every block is encoded on its
+ * own, so any frame can be read by decoding its block only.
+ *
+ * Within a block, each value is predicted from the same value of the
+ * previous frames: 0 on the first frame, the previous value on the second,
+ * and the linear extrapolation of the two previous ones afterwards.
+ *
+ * Lossless mode (precision 0) stores the XOR of the value bits with
+ * the predicted bits, Gorilla-style: a 0 bit when they are equal,
+ * otherwise 10 and the meaningful bits when they fit in the previous
+ * leading/trailing zero window of the value, or 11, 5 bits of leading
+ * zeros, 6 bits of meaningful length minus 1 and the meaningful bits.
+ *
+ * Lossy mode quantizes every value to the nearest multiple of 2 * precision,
+ * so the error is at most precision, up to round-off, and stores the difference with the
+ * predicted multiple, zigzag encoded: a 0 bit when it is 0, otherwise
+ * a 1 bit, 6 bits of length minus 1, and the bits below the leading one.
+ *
+ * All values are little-endian, the payload bits are most significant first.
+ *
+ * <pre>
+ * header, 128 bytes
+ *   0  byte[4]  magic "TP4Z"
+ *   4  int32    version
+ *   8  int32    N, the number of particles
+ *   12 int32    integrator name length, in bytes
+ *   16 float64  dt
+ *   24 int64    steps between frames
+ *   32 int32    frames per block
+ *   36 int32    reserved, 0
+ *   40 float64  precision, 0 when lossless
+ *   48 byte[80] integrator name, UTF-8, zero padded
+ * blocks, until the end of the file
+ *   int32       frames in the block, up to the frames per block
+ *   int32       payload size, in bytes
+ *   int64[]     step index of every frame
+ *   byte[]      payload, every frame in order, the values of each particle in order
+ * </pre>
+ *
+ * A block is closed early once its payload passes {@link #BLOCK_BYTES},
+ * so large frames don't make blocks too large for an array.
+ *
+ * @apiNote There is no index, the reader finds the blocks by
+ * skipping over them, so a file cut short by a crash is still
+ * readable up to its last complete block.
+ */
+public abstract class CompressedTrajectory {
+    public static final int MAGIC = 0x5A345054; // "TP4Z" read as a little-endian int
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 128;
+    public static final int NAME_OFFSET = 48;
+    public static final int NAME_BYTES = HEADER_BYTES - NAME_OFFSET;
+    public static final int BLOCK_HEADER_BYTES = 2 * Integer.BYTES;
+    public static final int DEFAULT_BLOCK = 64;
+    public static final int BLOCK_BYTES = 1 << 29;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+}
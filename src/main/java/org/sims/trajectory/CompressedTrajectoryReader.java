@@ -0,0 +1,241 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Random access to the frames of a compressed trajectory file.
+ *
+ * Opening skips over the blocks to index them, reading a frame decodes
+ * its block up to it. Reading the frames in order decodes each one once.
+ *
+ * @apiNote Frames appended after opening are not visible.
+ *
+ * @see CompressedTrajectory for the layout
+ */
+public class CompressedTrajectoryReader implements Closeable {
+    private final FileChannel channel;
+    private final int n;
+    private final double dt;
+    private final long interval;
+    private final String integrator;
+    private final int blockFrames;
+    private final double precision;
+
+    /**
+     * Per block: its file offset and its first frame, plus one past the last block
+     */
+    private final long[] offsets;
+    private final long[] firstFrames;
+    private final long[] steps;
+
+    private final FrameCodec codec;
+    private FrameCodec.BitReader payload;
+    private int cached = -1;
+    private long decoded = 0;
+
+    /**
+     * Open a compressed trajectory file and index its blocks
+     *
+     * @param path the file path
+     * @throws IOException if the file cannot be read or isn't a compressed trajectory
+     */
+    public CompressedTrajectoryReader(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        final var header = read(0, CompressedTrajectory.HEADER_BYTES);
+        if (header.remaining() < CompressedTrajectory.HEADER_BYTES || header.getInt() != CompressedTrajectory.MAGIC) {
+            channel.close();
+            throw new IOException("Not a compressed trajectory file: " + path);
+        }
+
+        final var version = header.getInt();
+        if (version != CompressedTrajectory.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported compressed trajectory version %d in %s".formatted(version, path));
+        }
+
+        this.n = header.getInt();
+        final var nameLength = header.getInt();
+        this.dt = header.getDouble();
+        this.interval = header.getLong();
+        this.blockFrames = header.getInt();
+        header.getInt();
+        this.precision = header.getDouble();
+
+        final var name = new byte[nameLength];
+        header.position(CompressedTrajectory.NAME_OFFSET).get(name);
+        this.integrator = new String(name, StandardCharsets.UTF_8);
+
+        this.codec = new FrameCodec(Trajectory.VALUES_PER_PARTICLE * n, precision);
+
+        // Skip over the blocks, stopping at one cut short
+        final var offsets = new ArrayList<Long>();
+        final var firstFrames = new ArrayList<Long>();
+        final var steps = new ArrayList<long[]>();
+        final var size = channel.size();
+        long offset = CompressedTrajectory.HEADER_BYTES;
+        long frames = 0;
+
+        while (offset + CompressedTrajectory.BLOCK_HEADER_BYTES <= size) {
+            final var block = read(offset, CompressedTrajectory.BLOCK_HEADER_BYTES);
+            final var count = block.getInt();
+            final var bytes = block.getInt();
+            final var end = offset + CompressedTrajectory.BLOCK_HEADER_BYTES + (long) Long.BYTES * count + bytes;
+            if (count < 1 || count > blockFrames || bytes < 0 || end > size) {
+                break;
+            }
+
+            final var indices = new long[count];
+            read(offset + CompressedTrajectory.BLOCK_HEADER_BYTES, Long.BYTES * count).asLongBuffer().get(indices);
+
+            offsets.add(offset);
+            firstFrames.add(frames);
+            steps.add(indices);
+            offset = end;
+            frames += count;
+        }
+        offsets.add(offset);
+        firstFrames.add(frames);
+
+        this.offsets = offsets.stream().mapToLong(Long::longValue).toArray();
+        this.firstFrames = firstFrames.stream().mapToLong(Long::longValue).toArray();
+        this.steps = steps.stream().flatMapToLong(Arrays::stream).toArray();
+    }
+
+    public int particles() {
+        return n;
+    }
+
+    public double dt() {
+        return dt;
+    }
+
+    public long interval() {
+        return interval;
+    }
+
+    public String integrator() {
+        return integrator;
+    }
+
+    public int blockFrames() {
+        return blockFrames;
+    }
+
+    /**
+     * The absolute error bound of every value
+     *
+     * @return the precision, 0 when lossless
+     */
+    public double precision() {
+        return precision;
+    }
+
+    /**
+     * The number of frames in the complete blocks of the file
+     *
+     * @return the frame count
+     */
+    public long frames() {
+        return steps.length;
+    }
+
+    /**
+     * The step index a frame was saved at
+     *
+     * @param frame the frame index
+     * @return the step index
+     */
+    public long step(final long frame) {
+        check(frame);
+        return steps[(int) frame];
+    }
+
+    /**
+     * Read a frame, as x y z vx vy vz for every particle
+     *
+     * @param frame the frame index
+     * @return a new array of 6 * N values
+     * @throws IOException if the block cannot be read
+     */
+    public double[] frame(final long frame) throws IOException {
+        final var values = new double[Trajectory.VALUES_PER_PARTICLE * n];
+        frame(frame, values);
+        return values;
+    }
+
+    /**
+     * Read a frame into an existing array
+     *
+     * @param frame  the frame index
+     * @param values the output, at least 6 * N long
+     * @throws IOException if the block cannot be read
+     */
+    public void frame(final long frame, final double[] values) throws IOException {
+        check(frame);
+
+        final var block = block(frame);
+        if (block != cached || frame < decoded) {
+            final var count = (int) (firstFrames[block + 1] - firstFrames[block]);
+            final var start = offsets[block] + CompressedTrajectory.BLOCK_HEADER_BYTES + (long) Long.BYTES * count;
+            final var bytes = read(start, (int) (offsets[block + 1] - start));
+
+            final var array = new byte[bytes.remaining()];
+            bytes.get(array);
+            payload = new FrameCodec.BitReader(array);
+            codec.reset();
+            cached = block;
+            decoded = firstFrames[block];
+        }
+
+        while (decoded <= frame) {
+            codec.decode(payload, values);
+            decoded++;
+        }
+    }
+
+    /**
+     * The block holding a frame
+     *
+     * @param frame the frame index, or the frame count for one past the last block
+     * @return the block index
+     */
+    int block(final long frame) {
+        final var found = Arrays.binarySearch(firstFrames, frame);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    long firstFrame(final int block) {
+        return firstFrames[block];
+    }
+
+    long offset(final int block) {
+        return offsets[block];
+    }
+
+    private void check(final long frame) {
+        if (frame < 0 || frame >= steps.length) {
+            throw new IndexOutOfBoundsException("Frame %d out of [0, %d)".formatted(frame, steps.length));
+        }
+    }
+
+    private ByteBuffer read(final long position, final int bytes) throws IOException {
+        final var buffer = ByteBuffer.allocate(bytes).order(CompressedTrajectory.ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,210 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Appends frames to a compressed trajectory file.
+ *
+ * Frames are encoded as they arrive and written a block at a time,
+ * a flush, or a payload past {@link CompressedTrajectory#BLOCK_BYTES},
+ * writes the pending frames as a shorter block.
+ *
+ * @see CompressedTrajectory for the layout
+ */
+public class CompressedTrajectoryWriter implements SnapshotWriter.Sink {
+    private final FileChannel channel;
+    private final int n;
+    private final FrameCodec codec;
+    private final FrameCodec.BitWriter bits = new FrameCodec.BitWriter();
+    private final long[] steps;
+    private int pending = 0;
+
+    /**
+     * Create (or truncate) a compressed trajectory file and write its header
+     *
+     * @param path       the file path
+     * @param n          the number of particles per frame
+     * @param dt         the integration time step
+     * @param interval   the steps between frames
+     * @param integrator the integrator name
+     * @param block      the frames per block, the unit of random access
+     * @param precision  the absolute error bound of every value, 0 for lossless
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a frame of n particles may not fit in a block
+     */
+    public CompressedTrajectoryWriter(final Path path, final int n, final double dt, final long interval,
+            final String integrator, final int block, final double precision) throws IOException {
+        final var name = integrator.getBytes(StandardCharsets.UTF_8);
+        if (name.length > CompressedTrajectory.NAME_BYTES) {
+            throw new IllegalArgumentException("Integrator name too long: " + integrator);
+        }
+        if (block < 1) {
+            throw new IllegalArgumentException("block must be positive, got " + block);
+        }
+        check(n);
+
+        this.n = n;
+        this.codec = new FrameCodec(Trajectory.VALUES_PER_PARTICLE * n, precision);
+        this.steps = new long[block];
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        final var header = ByteBuffer.allocate(CompressedTrajectory.HEADER_BYTES).order(CompressedTrajectory.ORDER);
+        header.putInt(CompressedTrajectory.MAGIC)
+                .putInt(CompressedTrajectory.VERSION)
+                .putInt(n)
+                .putInt(name.length)
+                .putDouble(dt)
+                .putLong(interval)
+                .putInt(block)
+                .putInt(0)
+                .putDouble(precision)
+                .put(name);
+        header.clear();
+        drain(header);
+    }
+
+    private CompressedTrajectoryWriter(final FileChannel channel, final int n, final int block,
+            final double precision) {
+        check(n);
+        this.channel = channel;
+        this.n = n;
+        this.codec = new FrameCodec(Trajectory.VALUES_PER_PARTICLE * n, precision);
+        this.steps = new long[block];
+    }
+
+    /**
+     * Reopen a compressed trajectory file to keep appending frames,
+     * discarding every frame saved at or after a step.
+     *
+     * The frames are found by their step index, so frames skipped
+     * by a DROP or COALESCE policy don't matter. The block holding
+     * the cut is decoded and encoded again, so the kept frames are
+     * not duplicated.
+     *
+     * @param path the file path
+     * @param n    the number of particles per frame
+     * @param from the first step to discard, the step the run resumes at
+     * @return the writer, positioned after the kept frames
+     * @throws IOException if the file cannot be written or doesn't match n
+     */
+    public static CompressedTrajectoryWriter resume(final Path path, final int n, final long from)
+            throws IOException {
+        try (final var reader = new CompressedTrajectoryReader(path)) {
+            if (reader.particles() != n) {
+                throw new IOException("Trajectory %s has %d particles, expected %d".formatted(path, reader.particles(), n));
+            }
+
+            // Steps only grow, find the first frame at or after from
+            long kept = 0, high = reader.frames();
+            while (kept < high) {
+                final var mid = (kept + high) >>> 1;
+                if (reader.step(mid) < from) {
+                    kept = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            final var block = reader.block(kept);
+            final var first = reader.firstFrame(block);
+
+            // Decode before truncating, the reader doesn't own a copy of the block
+            final var frameSteps = new long[(int) (kept - first)];
+            final var frameValues = new double[frameSteps.length][];
+            for (int f = 0; f < frameSteps.length; f++) {
+                frameSteps[f] = reader.step(first + f);
+                frameValues[f] = reader.frame(first + f);
+            }
+
+            final var channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(reader.offset(block));
+            channel.position(channel.size());
+
+            final var writer = new CompressedTrajectoryWriter(channel, n, reader.blockFrames(), reader.precision());
+            for (int f = 0; f < frameSteps.length; f++) {
+                writer.write(frameSteps[f], frameValues[f]);
+            }
+
+            return writer;
+        }
+    }
+
+    /**
+     * Append a frame from a snapshot
+     *
+     * @param step  the step index
+     * @param state x y z vx vy vz of every particle
+     * @throws IOException if a full block cannot be written
+     */
+    @Override
+    public void write(final long step, final double[] state) throws IOException {
+        if (state.length / Trajectory.VALUES_PER_PARTICLE != n) {
+            throw new IllegalArgumentException("Expected %d particles, got %d"
+                    .formatted(n, state.length / Trajectory.VALUES_PER_PARTICLE));
+        }
+
+        steps[pending++] = step;
+        codec.encode(state, bits);
+
+        if (pending == steps.length || bits.size() >= CompressedTrajectory.BLOCK_BYTES) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * A block ends once past the byte cap, so one more frame must fit on top of it
+     */
+    private static void check(final int n) {
+        if (FrameCodec.maxFrameBytes((long) Trajectory.VALUES_PER_PARTICLE * n) > CompressedTrajectory.BLOCK_BYTES) {
+            throw new IllegalArgumentException("%d particles don't fit in a compressed block, use the binary format"
+                    .formatted(n));
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+
+        final var payload = bits.finish();
+        final var header = ByteBuffer.allocate(CompressedTrajectory.BLOCK_HEADER_BYTES + Long.BYTES * pending)
+                .order(CompressedTrajectory.ORDER);
+        header.putInt(pending).putInt(bits.size());
+        for (int f = 0; f < pending; f++) {
+            header.putLong(steps[f]);
+        }
+        header.flip();
+        drain(header);
+        drain(ByteBuffer.wrap(payload, 0, bits.size()));
+
+        bits.clear();
+        codec.reset();
+        pending = 0;
+    }
+
+    private void drain(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.sims.trajectory;
+
+import java.util.*;
+
+/**
+ * Encodes and decodes the frames of a block, see {@link CompressedTrajectory}.
+ *
+ * Keeps the history of every value, so the same instance must see
+ * every frame of a block in order, and be reset between blocks.
+ */
+final class FrameCodec {
+    private final int values;
+    private final double precision;
+    private final double quantum;
+
+    /**
+     * Per value: the last two frames, as bits or as multiples of the quantum
+     */
+    private final long[] last, before;
+
+    /**
+     * Per value: the leading and trailing zeros of the last XOR window, -1 if none
+     */
+    private final int[] leading, trailing;
+
+    private int position = 0;
+
+    /**
+     * @param values    the number of values per frame
+     * @param precision the absolute error bound, 0 for lossless
+     */
+    FrameCodec(final int values, final double precision) {
+        if (precision < 0 || !Double.isFinite(precision)) {
+            throw new IllegalArgumentException("precision must be finite and non negative, got " + precision);
+        }
+
+        this.values = values;
+        this.precision = precision;
+        this.quantum = 2 * precision;
+        this.last = new long[values];
+        this.before = new long[values];
+        this.leading = new int[values];
+        this.trailing = new int[values];
+        reset();
+    }
+
+    /**
+     * The most bytes a frame can take, when every value needs a full XOR window
+     *
+     * @param values the number of values per frame
+     * @return the bound, in bytes
+     */
+    static long maxFrameBytes(final long values) {
+        return (values * (2 + 5 + 6 + Long.SIZE) + 7) / 8;
+    }
+
+    /**
+     * Start a new block
+     */
+    void reset() {
+        position = 0;
+        Arrays.fill(leading, -1);
+        Arrays.fill(trailing, -1);
+    }
+
+    void encode(final double[] state, final BitWriter out) {
+        for (int i = 0; i < values; i++) {
+            if (precision > 0) {
+                final var q = Math.round(state[i] / quantum);
+                writeResidual(out, q - predictQuantized(i));
+                remember(i, q);
+            } else {
+                final var bits = Double.doubleToRawLongBits(state[i]);
+                writeXor(out, i, bits ^ Double.doubleToRawLongBits(predict(i)));
+                remember(i, bits);
+            }
+        }
+        position++;
+    }
+
+    void decode(final BitReader in, final double[] state) {
+        for (int i = 0; i < values; i++) {
+            if (precision > 0) {
+                final var q = predictQuantized(i) + readResidual(in);
+                state[i] = q * quantum;
+                remember(i, q);
+            } else {
+                final var bits = readXor(in, i) ^ Double.doubleToRawLongBits(predict(i));
+                state[i] = Double.longBitsToDouble(bits);
+                remember(i, bits);
+            }
+        }
+        position++;
+    }
+
+    private double predict(final int i) {
+        return switch (position) {
+            case 0 -> 0;
+            case 1 -> Double.longBitsToDouble(last[i]);
+            default -> 2 * Double.longBitsToDouble(last[i]) - Double.longBitsToDouble(before[i]);
+        };
+    }
+
+    private long predictQuantized(final int i) {
+        return switch (position) {
+            case 0 -> 0;
+            case 1 -> last[i];
+            default -> 2 * last[i] - before[i];
+        };
+    }
+
+    private void remember(final int i, final long value) {
+        before[i] = last[i];
+        last[i] = value;
+    }
+
+    private void writeXor(final BitWriter out, final int i, final long xor) {
+        if (xor == 0) {
+            out.write(0, 1);
+            return;
+        }
+
+        final var lz = Math.min(31, Long.numberOfLeadingZeros(xor));
+        final var tz = Long.numberOfTrailingZeros(xor);
+
+        if (leading[i] >= 0 && lz >= leading[i] && tz >= trailing[i]) {
+            out.write(0b10, 2);
+            out.write(xor >>> trailing[i], 64 - leading[i] - trailing[i]);
+            return;
+        }
+
+        final var meaningful = 64 - lz - tz;
+        out.write(0b11, 2);
+        out.write(lz, 5);
+        out.write(meaningful - 1, 6);
+        out.write(xor >>> tz, meaningful);
+        leading[i] = lz;
+        trailing[i] = tz;
+    }
+
+    private long readXor(final BitReader in, final int i) {
+        if (in.read(1) == 0) {
+            return 0;
+        }
+
+        if (in.read(1) == 0) {
+            return in.read(64 - leading[i] - trailing[i]) << trailing[i];
+        }
+
+        final var lz = (int) in.read(5);
+        final var meaningful = (int) in.read(6) + 1;
+        final var tz = 64 - lz - meaningful;
+        leading[i] = lz;
+        trailing[i] = tz;
+        return in.read(meaningful) << tz;
+    }
+
+    private static void writeResidual(final BitWriter out, final long residual) {
+        final var zigzag = (residual << 1) ^ (residual >> 63);
+        if (zigzag == 0) {
+            out.write(0, 1);
+            return;
+        }
+
+        // The leading one is implied by the length
+        final var length = 64 - Long.numberOfLeadingZeros(zigzag);
+        out.write(1, 1);
+        out.write(length - 1, 6);
+        out.write(zigzag, length - 1);
+    }
+
+    private static long readResidual(final BitReader in) {
+        if (in.read(1) == 0) {
+            return 0;
+        }
+
+        final var length = (int) in.read(6) + 1;
+        final var zigzag = (1L << (length - 1)) | in.read(length - 1);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Appends bits, most significant first, to a growable byte array
+     */
+    static final class BitWriter {
+        private byte[] bytes = new byte[1024];
+        private int size = 0;
+        private long acc = 0;
+        private int bits = 0;
+
+        /**
+         * Append the n low bits of a value
+         *
+         * @param value the bits
+         * @param n     how many, in [0, 64]
+         */
+        void write(final long value, final int n) {
+            if (n > 32) {
+                write(value >>> 32, n - 32);
+                write(value, 32);
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+
+            acc = (acc << n) | (value & ((1L << n) - 1));
+            bits += n;
+            while (bits >= 8) {
+                bits -= 8;
+                if (size == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(2L * size, Integer.MAX_VALUE - 8));
+                }
+                bytes[size++] = (byte) (acc >>> bits);
+            }
+        }
+
+        /**
+         * Pad the last byte with zeros
+         *
+         * @return the bytes written, valid up to {@link #size()}
+         */
+        byte[] finish() {
+            if (bits > 0) {
+                write(0, 8 - bits);
+            }
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+            acc = 0;
+            bits = 0;
+        }
+    }
+
+    /**
+     * Reads bits, most significant first, from a byte array
+     */
+    static final class BitReader {
+        private final byte[] bytes;
+        private int position = 0;
+        private long acc = 0;
+        private int bits = 0;
+
+        BitReader(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Read n bits
+         *
+         * @param n how many, in [0, 64]
+         * @return the bits, in the low end
+         */
+        long read(final int n) {
+            if (n > 32) {
+                final var high = read(n - 32);
+                return (high << 32) | read(32);
+            }
+            if (n == 0) {
+                return 0;
+            }
+
+            while (bits < n) {
+                acc = (acc << 8) | (bytes[position++] & 0xFF);
+                bits += 8;
+            }
+            bits -= n;
+            return (acc >>> bits) & ((1L << n) - 1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * How a simulation saves its steps.
+ *
+ * @apiNote Dropped or coalesced snapshots leave gaps in the text
+ *          file indices, which the Python frames reader doesn't expect.
+ *          Binary frames carry their step index, so they have no such issue.
+ *
+ * @param format    "text" for steps/&lt;idx&gt;.txt files, "binary" for a steps.bin trajectory,
+ *                  "socket" to stream the frames over a steps.sock Unix domain socket,
+ *                  "pipe" to stream them into a steps.pipe named pipe, see {@link StreamSink},
+ *                  "compressed" for a steps.tp4z compressed trajectory, see {@link CompressedTrajectory}
+ * @param policy    what to do when the writer falls behind
+ * @param buffers   the number of snapshots that can be queued at once
+ * @param precision the absolute error bound of compressed values, 0 for lossless
+ * @param block     the frames per compressed block
+ */
+public record Output(String format, SnapshotWriter.Policy policy, int buffers, double precision, int block) {
+    public static final int DEFAULT_BUFFERS = 4;
+    private static final Set<String> FORMATS = Set.of("text", "binary", "socket", "pipe", "compressed");
+
+    public Output {
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unknown output: " + format);
+        }
+        if (precision < 0 || block < 1) {
+            throw new IllegalArgumentException("Invalid compression, precision %s block %d".formatted(precision, block));
+        }
+    }
+
+    public Output(final String format, final SnapshotWriter.Policy policy, final int buffers) {
+        this(format, policy, buffers, 0, CompressedTrajectory.DEFAULT_BLOCK);
+    }
+
+    /**
+     * Read the output settings from the params.json keys "output", "snapshot_policy",
+     * "snapshot_buffers", "compression_precision" and "compression_block"
+     *
+     * @param params the parsed params
+     * @return the output settings, text with blocking writes by default
+     */
+    public static Output from(final Map<String, Object> params) {
+        return new Output(
+                params.getOrDefault("output", "text").toString(),
+                SnapshotWriter.Policy.valueOf(params.getOrDefault("snapshot_policy", "block").toString().toUpperCase()),
+                ((Number) params.getOrDefault("snapshot_buffers", DEFAULT_BUFFERS)).intValue(),
+                ((Number) params.getOrDefault("compression_precision", 0)).doubleValue(),
+                ((Number) params.getOrDefault("compression_block", CompressedTrajectory.DEFAULT_BLOCK)).intValue());
+    }
+
+    /**
+     * Start a snapshot writer for a run
+     *
+     * @param dir        the output directory, with a "steps" subdirectory
+     * @param n          the number of particles
+     * @param dt         the integration time step
+     * @param interval   the steps between snapshots
+     * @param integrator the integrator name
+     * @return the snapshot writer
+     * @throws IOException if the output cannot be created
+     */
+    public SnapshotWriter open(final Path dir, final int n, final double dt, final long interval, final String integrator)
+            throws IOException {
+        return open(dir, n, dt, interval, integrator, 0);
+    }
+
+    /**
+     * Start a snapshot writer for a resumed run
+     *
+     * Binary and compressed trajectories keep the frames saved before the resume step,
+     * text steps are simply overwritten, and streams start from the resume step.
+     *
+     * @param dir        the output directory, with a "steps" subdirectory
+     * @param n          the number of particles
+     * @param dt         the integration time step
+     * @param interval   the steps between snapshots
+     * @param integrator the integrator name
+     * @param from       the first step of the run, 0 for a new one
+     * @return the snapshot writer
+     * @throws IOException if the output cannot be created
+     */
+    public SnapshotWriter open(final Path dir, final int n, final double dt, final long interval, final String integrator,
+            final long from) throws IOException {
+        final var trajectory = dir.resolve("steps.bin");
+        final var compressed = dir.resolve("steps.tp4z");
+
+        final SnapshotWriter.Sink sink = switch (format) {
+            case "binary" -> from > 0 && Files.exists(trajectory)
+                    ? TrajectoryWriter.resume(trajectory, n, from)
+                    : new TrajectoryWriter(trajectory, n, dt, interval, integrator);
+            case "compressed" -> from > 0 && Files.exists(compressed)
+                    ? CompressedTrajectoryWriter.resume(compressed, n, from)
+                    : new CompressedTrajectoryWriter(compressed, n, dt, interval, integrator, block, precision);
+            case "socket" -> StreamSink.socket(dir.resolve("steps.sock"), n, dt, interval, integrator);
+            case "pipe" -> StreamSink.pipe(dir.resolve("steps.pipe"), n, dt, interval, integrator);
+            default -> new TextSink(dir.resolve("steps"), interval);
+        };
+
+        return new SnapshotWriter(sink, n, buffers, policy);
+    }
+}
@@ -0,0 +1,343 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.util.*;
+
+import org.sims.models.*;
+
+/**
+ * Saves simulation snapshots from a dedicated writer thread.
+ *
+ * The simulation thread only copies the state into one of a
+ * fixed pool of reusable buffers and queues it, formatting and
+ * I/O happen in the writer thread. When every buffer is in use,
+ * the {@link Policy} decides what to do with the new snapshot,
+ * so memory stays bounded by the pool size.
+ *
+ * @apiNote Each snapshot is stored as x y z vx vy vz for every
+ *          particle, same as a trajectory frame.
+ */
+public class SnapshotWriter implements Closeable {
+    /**
+     * What to do when the simulation outruns the writer
+     */
+    public enum Policy {
+        /**
+         * Wait for a buffer, every snapshot is saved
+         */
+        BLOCK,
+        /**
+         * Discard the new snapshot
+         */
+        DROP,
+        /**
+         * Overwrite the newest queued snapshot with the new one
+         */
+        COALESCE
+    }
+
+    /**
+     * The destination of the snapshots, called from the writer thread
+     */
+    @FunctionalInterface
+    public interface Sink extends Closeable {
+        /**
+         * Persist a snapshot
+         *
+         * @param step  the step index
+         * @param state x y z vx vy vz of every particle
+         * @throws IOException if the snapshot cannot be saved
+         */
+        void write(final long step, final double[] state) throws IOException;
+
+        /**
+         * Make the written snapshots durable
+         *
+         * @throws IOException if the sink cannot be flushed
+         */
+        default void flush() throws IOException {
+        }
+
+        /**
+         * Stop waiting for a consumer that hasn't shown up, called from
+         * {@link SnapshotWriter#close()} before the queued snapshots are saved
+         */
+        default void release() {
+        }
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private static final class Snapshot {
+        private long step;
+        private final double[] state;
+
+        private Snapshot(final int n) {
+            this.state = new double[Trajectory.VALUES_PER_PARTICLE * n];
+        }
+    }
+
+    private final Sink sink;
+    private final Policy policy;
+    private final int n;
+    private final int buffers;
+    private final ArrayDeque<Snapshot> free;
+    private final ArrayDeque<Snapshot> pending;
+    private final Thread writer;
+
+    private boolean closed = false;
+    private Exception failure;
+    private long dropped = 0;
+    private long coalesced = 0;
+
+    /**
+     * @param sink     where to save the snapshots
+     * @param n        the number of particles per snapshot
+     * @param buffers  the number of reusable buffers, the ring capacity
+     * @param policy   the policy when every buffer is in use
+     */
+    public SnapshotWriter(final Sink sink, final int n, final int buffers, final Policy policy) {
+        if (buffers < 1) {
+            throw new IllegalArgumentException("buffers must be positive, got " + buffers);
+        }
+
+        this.sink = sink;
+        this.policy = policy;
+        this.n = n;
+        this.buffers = buffers;
+        this.free = new ArrayDeque<>(buffers);
+        this.pending = new ArrayDeque<>(buffers);
+
+        for (int i = 0; i < buffers; i++) {
+            free.push(new Snapshot(n));
+        }
+
+        this.writer = Thread.ofPlatform().name("snapshot-writer").start(this::drain);
+    }
+
+    /**
+     * Queue a snapshot of a particles buffer
+     *
+     * @param step      the step index
+     * @param particles the particles state
+     * @return whether the snapshot was queued, false if dropped
+     * @throws IOException if a previous snapshot failed to save
+     */
+    public boolean submit(final long step, final ParticleBuffer particles) throws IOException {
+        check(particles.size());
+        final var s = acquire();
+        if (s == null) {
+            return false;
+        }
+
+        final var state = s.state;
+        for (int i = 0, k = 0; i < n; i++) {
+            state[k++] = particles.x[i];
+            state[k++] = particles.y[i];
+            state[k++] = particles.z[i];
+            state[k++] = particles.vx[i];
+            state[k++] = particles.vy[i];
+            state[k++] = particles.vz[i];
+        }
+
+        publish(s, step);
+        return true;
+    }
+
+    /**
+     * Queue a snapshot of a collection of particles
+     *
+     * @param step      the step index
+     * @param particles the particles, in the order to save them
+     * @return whether the snapshot was queued, false if dropped
+     * @throws IOException if a previous snapshot failed to save
+     */
+    public boolean submit(final long step, final Collection<Particle> particles) throws IOException {
+        check(particles.size());
+        final var s = acquire();
+        if (s == null) {
+            return false;
+        }
+
+        final var state = s.state;
+        var k = 0;
+        for (final var p : particles) {
+            final var r = p.getPosition();
+            final var v = p.getVelocity();
+            state[k++] = r.x();
+            state[k++] = r.y();
+            state[k++] = r.z();
+            state[k++] = v.x();
+            state[k++] = v.y();
+            state[k++] = v.z();
+        }
+
+        publish(s, step);
+        return true;
+    }
+
+    /**
+     * Wait until every queued snapshot is saved, and flush the sink
+     *
+     * @throws IOException if a snapshot failed to save
+     */
+    public void flush() throws IOException {
+        synchronized (this) {
+            while (free.size() < buffers) {
+                rethrow();
+                await();
+            }
+            rethrow();
+        }
+
+        sink.flush();
+    }
+
+    public long dropped() {
+        return dropped;
+    }
+
+    public long coalesced() {
+        return coalesced;
+    }
+
+    private void check(final int size) {
+        if (size != n) {
+            throw new IllegalArgumentException("Expected %d particles, got %d".formatted(n, size));
+        }
+    }
+
+    /**
+     * Get a buffer to copy into, according to the policy
+     *
+     * @return the buffer, or null if the snapshot must be dropped
+     */
+    private synchronized Snapshot acquire() throws IOException {
+        rethrow();
+
+        if (free.isEmpty()) {
+            switch (policy) {
+                case BLOCK -> {
+                    while (free.isEmpty()) {
+                        await();
+                        rethrow();
+                    }
+                }
+                case DROP -> {
+                    dropped++;
+                    return null;
+                }
+                case COALESCE -> {
+                    // Still queued, so the writer hasn't started reading it
+                    final var newest = pending.pollLast();
+                    if (newest != null) {
+                        coalesced++;
+                        return newest;
+                    }
+
+                    while (free.isEmpty()) {
+                        await();
+                        rethrow();
+                    }
+                }
+            }
+        }
+
+        return free.pop();
+    }
+
+    private synchronized void publish(final Snapshot s, final long step) {
+        s.step = step;
+        pending.addLast(s);
+        notifyAll();
+    }
+
+    /**
+     * The writer thread loop
+     */
+    private void drain() {
+        while (true) {
+            final Snapshot s;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                s = pending.pollFirst();
+            }
+
+            try {
+                sink.write(s.step, s.state);
+            } catch (IOException | RuntimeException e) {
+                // Hand every buffer back, so nobody waits on one forever
+                synchronized (this) {
+                    failure = e;
+                    free.push(s);
+                    free.addAll(pending);
+                    pending.clear();
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                free.push(s);
+                notifyAll();
+            }
+        }
+    }
+
+    private void await() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a snapshot buffer");
+        }
+    }
+
+    private void rethrow() throws IOException {
+        if (failure != null) {
+            throw new IOException("Snapshot writer failed", failure);
+        }
+    }
+
+    /**
+     * Save every queued snapshot and close the sink, once
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+
+        try {
+            sink.release();
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing snapshots");
+        } finally {
+            sink.close();
+        }
+
+        synchronized (this) {
+            rethrow();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+
+/**
+ * Streams the snapshots live to a local reader, with no files in between.
+ *
+ * The stream is exactly a binary trajectory, the {@link Trajectory}
+ * header followed by one frame per snapshot, so the reader can
+ * {@code numpy.frombuffer} every frame as soon as it arrives,
+ * see stream.py.
+ *
+ * The reader connects to a Unix domain socket, or opens a named pipe
+ * created beforehand with mkfifo. Either way, the first snapshot
+ * waits in the writer thread until a reader is there, or the run ends.
+ *
+ * If the reader goes away, the stream is dropped and the run goes on.
+ */
+public class StreamSink implements SnapshotWriter.Sink {
+    /**
+     * Waits for the reader, called from the writer thread
+     */
+    @FunctionalInterface
+    private interface Connector {
+        WritableByteChannel connect() throws IOException;
+    }
+
+    private final Connector connector;
+    private final Closeable abort;
+    private final Closeable cleanup;
+    private final String name;
+    private final int n;
+    private final double dt;
+    private final long interval;
+    private final String integrator;
+
+    private TrajectoryWriter writer;
+    private boolean detached = false;
+    private boolean connecting = false;
+    private boolean released = false;
+
+    private StreamSink(final Connector connector, final Closeable abort, final Closeable cleanup, final String name,
+            final int n, final double dt, final long interval, final String integrator) {
+        this.connector = connector;
+        this.abort = abort;
+        this.cleanup = cleanup;
+        this.name = name;
+        this.n = n;
+        this.dt = dt;
+        this.interval = interval;
+        this.integrator = integrator;
+    }
+
+    /**
+     * Listen on a Unix domain socket, replacing a stale one
+     *
+     * @param path       the socket path
+     * @param n          the number of particles per frame
+     * @param dt         the integration time step
+     * @param interval   the steps between frames
+     * @param integrator the integrator name
+     * @return the sink, accepting the reader on the first snapshot
+     * @throws IOException if the socket cannot be bound
+     */
+    public static StreamSink socket(final Path path, final int n, final double dt, final long interval,
+            final String integrator) throws IOException {
+        Files.deleteIfExists(path);
+
+        final var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(path));
+
+        // Closing the server wakes up a pending accept
+        return new StreamSink(server::accept, server, () -> {
+            try {
+                server.close();
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }, path.toString(), n, dt, interval, integrator);
+    }
+
+    /**
+     * Write into an existing named pipe
+     *
+     * @param path       the pipe path, see mkfifo
+     * @param n          the number of particles per frame
+     * @param dt         the integration time step
+     * @param interval   the steps between frames
+     * @param integrator the integrator name
+     * @return the sink, opening the pipe on the first snapshot
+     * @throws IOException if the pipe doesn't exist
+     */
+    public static StreamSink pipe(final Path path, final int n, final double dt, final long interval,
+            final String integrator) throws IOException {
+        if (!Files.exists(path) || Files.isRegularFile(path)) {
+            throw new FileNotFoundException("No named pipe at " + path + ", create it with mkfifo");
+        }
+
+        // Opening the read end wakes up a pending open, the write then fails with no reader
+        return new StreamSink(() -> FileChannel.open(path, StandardOpenOption.WRITE),
+                () -> FileChannel.open(path, StandardOpenOption.READ).close(), () -> {
+                }, path.toString(), n, dt, interval, integrator);
+    }
+
+    @Override
+    public void write(final long step, final double[] state) throws IOException {
+        if (detached) {
+            return;
+        }
+
+        try {
+            if (writer == null) {
+                writer = new TrajectoryWriter(connect(), n, dt, interval, integrator);
+            }
+            writer.write(step, state);
+        } catch (IOException e) {
+            // The reader left, or never came, keep simulating without it
+            detached = true;
+            System.err.println(name + ": stream closed at step " + step + ", "
+                    + (isReleased() ? "no reader before the run ended" : e.getMessage()));
+            close(writer);
+        }
+    }
+
+    private WritableByteChannel connect() throws IOException {
+        synchronized (this) {
+            if (released) {
+                throw new IOException("No reader before the run ended");
+            }
+            connecting = true;
+        }
+
+        try {
+            return connector.connect();
+        } finally {
+            synchronized (this) {
+                connecting = false;
+            }
+        }
+    }
+
+    private synchronized boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Wake up the writer thread if it still waits for a reader
+     */
+    @Override
+    public void release() {
+        synchronized (this) {
+            released = true;
+            if (!connecting) {
+                return;
+            }
+        }
+
+        close(abort);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            close(writer);
+        } finally {
+            cleanup.close();
+        }
+    }
+
+    private static void close(final Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with a broken stream
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Locale;
+
+/**
+ * Saves each snapshot as a steps/&lt;idx&gt;.txt file, the
+ * legacy format read by the Python analyzers.
+ *
+ * Every line holds "x y z vx vy vz" of one particle.
+ *
+ * @param dir      the steps directory
+ * @param interval the steps between snapshots, idx = step / interval
+ */
+public record TextSink(Path dir, long interval) implements SnapshotWriter.Sink {
+    @Override
+    public void write(final long step, final double[] state) throws IOException {
+        final var file = dir.resolve("%d.txt".formatted(step / interval));
+
+        try (final var writer = Files.newBufferedWriter(file)) {
+            for (int k = 0; k < state.length; k += Trajectory.VALUES_PER_PARTICLE) {
+                writer.write(String.format(Locale.US, "%.14f %.14f %.14f %.14f %.14f %.14f%n",
+                        state[k], state[k + 1], state[k + 2], state[k + 3], state[k + 4], state[k + 5]));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.sims.trajectory;
+
+import java.nio.ByteOrder;
+
+/**
+ * The binary trajectory layout, shared by the writer and the reader.
+ *
+ * All values are little-endian.
+ *
+ * <pre>
+ * header, 128 bytes
+ *   0  byte[4]  magic "TP4T"
+ *   4  int32    version
+ *   8  int32    N, the number of particles
+ *   12 int32    integrator name length, in bytes
+ *   16 float64  dt
+ *   24 int64    steps between frames
+ *   32 byte[96] integrator name, UTF-8, zero padded
+ * frames, 8 + 48 * N bytes each
+ *   int64       step index
+ *   float64[6N] x y z vx vy vz of every particle, in order
+ * </pre>
+ */
+public abstract class Trajectory {
+    public static final int MAGIC = 0x54345054; // "TP4T" read as a little-endian int
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 128;
+    public static final int NAME_OFFSET = 32;
+    public static final int NAME_BYTES = HEADER_BYTES - NAME_OFFSET;
+    public static final int VALUES_PER_PARTICLE = 6;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * The size of a frame
+     *
+     * @param n the number of particles
+     * @return the frame size in bytes
+     */
+    public static long frameBytes(final int n) {
+        return Long.BYTES + (long) Double.BYTES * VALUES_PER_PARTICLE * n;
+    }
+}
@@ -0,0 +1,167 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Random access to the frames of a binary trajectory file.
+ *
+ * The file is memory-mapped in segments of whole frames,
+ * so reading a frame is a copy out of the page cache.
+ *
+ * @apiNote Frames appended after opening are not visible.
+ *
+ * @see Trajectory for the layout
+ */
+public class TrajectoryReader implements Closeable {
+    /**
+     * Upper bound for each mapped segment
+     */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int n;
+    private final double dt;
+    private final long interval;
+    private final String integrator;
+    private final long frames;
+    private final long frameBytes;
+    private final long framesPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Open a trajectory file and map its frames
+     *
+     * @param path the file path
+     * @throws IOException if the file cannot be read or isn't a trajectory
+     */
+    public TrajectoryReader(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        final var header = ByteBuffer.allocate(Trajectory.HEADER_BYTES).order(Trajectory.ORDER);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                break;
+            }
+        }
+        header.flip();
+
+        if (header.remaining() < Trajectory.HEADER_BYTES || header.getInt() != Trajectory.MAGIC) {
+            channel.close();
+            throw new IOException("Not a trajectory file: " + path);
+        }
+
+        final var version = header.getInt();
+        if (version != Trajectory.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported trajectory version %d in %s".formatted(version, path));
+        }
+
+        this.n = header.getInt();
+        final var nameLength = header.getInt();
+        this.dt = header.getDouble();
+        this.interval = header.getLong();
+
+        final var name = new byte[nameLength];
+        header.position(Trajectory.NAME_OFFSET).get(name);
+        this.integrator = new String(name, StandardCharsets.UTF_8);
+
+        this.frameBytes = Trajectory.frameBytes(n);
+        this.frames = (channel.size() - Trajectory.HEADER_BYTES) / frameBytes;
+        this.framesPerSegment = Math.max(1, SEGMENT_BYTES / frameBytes);
+        this.segments = new MappedByteBuffer[(int) ((frames + framesPerSegment - 1) / framesPerSegment)];
+    }
+
+    public int particles() {
+        return n;
+    }
+
+    public double dt() {
+        return dt;
+    }
+
+    public long interval() {
+        return interval;
+    }
+
+    public String integrator() {
+        return integrator;
+    }
+
+    /**
+     * The number of complete frames in the file
+     *
+     * @return the frame count
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * The step index a frame was saved at
+     *
+     * @param frame the frame index
+     * @return the step index
+     * @throws IOException if the file cannot be mapped
+     */
+    public long step(final long frame) throws IOException {
+        return segment(frame).getLong(offset(frame));
+    }
+
+    /**
+     * Read a frame, as x y z vx vy vz for every particle
+     *
+     * @param frame the frame index
+     * @return a new array of 6 * N values
+     * @throws IOException if the file cannot be mapped
+     */
+    public double[] frame(final long frame) throws IOException {
+        final var values = new double[Trajectory.VALUES_PER_PARTICLE * n];
+        frame(frame, values);
+        return values;
+    }
+
+    /**
+     * Read a frame into an existing array
+     *
+     * @param frame  the frame index
+     * @param values the output, at least 6 * N long
+     * @throws IOException if the file cannot be mapped
+     */
+    public void frame(final long frame, final double[] values) throws IOException {
+        segment(frame).slice(offset(frame) + Long.BYTES, (int) frameBytes - Long.BYTES)
+                .order(Trajectory.ORDER)
+                .asDoubleBuffer()
+                .get(values, 0, Trajectory.VALUES_PER_PARTICLE * n);
+    }
+
+    private int offset(final long frame) {
+        return (int) ((frame % framesPerSegment) * frameBytes);
+    }
+
+    private MappedByteBuffer segment(final long frame) throws IOException {
+        if (frame < 0 || frame >= frames) {
+            throw new IndexOutOfBoundsException("Frame %d out of [0, %d)".formatted(frame, frames));
+        }
+
+        final var s = (int) (frame / framesPerSegment);
+        if (segments[s] == null) {
+            final var first = s * framesPerSegment;
+            final var count = Math.min(framesPerSegment, frames - first);
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    Trajectory.HEADER_BYTES + first * frameBytes, count * frameBytes);
+            segments[s].order(Trajectory.ORDER);
+        }
+
+        return segments[s];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
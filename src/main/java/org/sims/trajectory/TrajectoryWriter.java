@@ -0,0 +1,206 @@
+package org.sims.trajectory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import org.sims.models.*;
+
+/**
+ * Appends frames to a binary trajectory file,
+ * or to any other channel, such as a socket.
+ *
+ * A single direct buffer of one frame is reused,
+ * so writing a frame doesn't allocate.
+ *
+ * @see Trajectory for the layout
+ */
+public class TrajectoryWriter implements SnapshotWriter.Sink {
+    private final WritableByteChannel channel;
+    private final ByteBuffer frame;
+    private final int n;
+
+    /**
+     * Create (or truncate) a trajectory file and write its header
+     *
+     * @param path       the file path
+     * @param n          the number of particles per frame
+     * @param dt         the integration time step
+     * @param interval   the steps between frames
+     * @param integrator the integrator name
+     * @throws IOException if the file cannot be written
+     */
+    public TrajectoryWriter(final Path path, final int n, final double dt, final long interval, final String integrator)
+            throws IOException {
+        this(FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                n, dt, interval, integrator);
+    }
+
+    /**
+     * Write a trajectory header to a channel, to append frames after it
+     *
+     * @param channel    the channel, closed along with the writer
+     * @param n          the number of particles per frame
+     * @param dt         the integration time step
+     * @param interval   the steps between frames
+     * @param integrator the integrator name
+     * @throws IOException if the header cannot be written
+     */
+    public TrajectoryWriter(final WritableByteChannel channel, final int n, final double dt, final long interval,
+            final String integrator) throws IOException {
+        this(channel, n);
+
+        final var name = integrator.getBytes(StandardCharsets.UTF_8);
+        if (name.length > Trajectory.NAME_BYTES) {
+            channel.close();
+            throw new IllegalArgumentException("Integrator name too long: " + integrator);
+        }
+
+        final var header = ByteBuffer.allocate(Trajectory.HEADER_BYTES).order(Trajectory.ORDER);
+        header.putInt(Trajectory.MAGIC)
+                .putInt(Trajectory.VERSION)
+                .putInt(n)
+                .putInt(name.length)
+                .putDouble(dt)
+                .putLong(interval)
+                .put(name);
+        header.clear();
+        drain(header);
+    }
+
+    private TrajectoryWriter(final WritableByteChannel channel, final int n) {
+        this.channel = channel;
+        this.n = n;
+        this.frame = ByteBuffer.allocateDirect(Math.toIntExact(Trajectory.frameBytes(n))).order(Trajectory.ORDER);
+    }
+
+    /**
+     * Reopen a trajectory file to keep appending frames,
+     * discarding every frame saved at or after a step.
+     *
+     * The frames are found by their step index, so frames
+     * skipped by a DROP or COALESCE policy don't matter.
+     *
+     * @param path the file path
+     * @param n    the number of particles per frame
+     * @param from the first step to discard, the step the run resumes at
+     * @return the writer, positioned after the kept frames
+     * @throws IOException if the file cannot be written or doesn't match n
+     */
+    public static TrajectoryWriter resume(final Path path, final int n, final long from) throws IOException {
+        try (final var reader = new TrajectoryReader(path)) {
+            if (reader.particles() != n) {
+                throw new IOException("Trajectory %s has %d particles, expected %d".formatted(path, reader.particles(), n));
+            }
+
+            // Steps only grow, find the first frame at or after from
+            long kept = 0, high = reader.frames();
+            while (kept < high) {
+                final var mid = (kept + high) >>> 1;
+                if (reader.step(mid) < from) {
+                    kept = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            final var channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(Trajectory.HEADER_BYTES + kept * Trajectory.frameBytes(n));
+            channel.position(channel.size());
+
+            return new TrajectoryWriter(channel, n);
+        }
+    }
+
+    /**
+     * Append a frame from a particles buffer
+     *
+     * @param step      the step index
+     * @param particles the particles state
+     * @throws IOException if the frame cannot be written
+     */
+    public void write(final long step, final ParticleBuffer particles) throws IOException {
+        check(particles.size());
+        frame.clear();
+        frame.putLong(step);
+
+        for (int i = 0; i < n; i++) {
+            frame.putDouble(particles.x[i]).putDouble(particles.y[i]).putDouble(particles.z[i])
+                    .putDouble(particles.vx[i]).putDouble(particles.vy[i]).putDouble(particles.vz[i]);
+        }
+
+        frame.flip();
+        drain(frame);
+    }
+
+    /**
+     * Append a frame from a collection of particles
+     *
+     * @param step      the step index
+     * @param particles the particles, in the order to save them
+     * @throws IOException if the frame cannot be written
+     */
+    public void write(final long step, final Collection<Particle> particles) throws IOException {
+        check(particles.size());
+        frame.clear();
+        frame.putLong(step);
+
+        for (final var p : particles) {
+            final var r = p.getPosition();
+            final var v = p.getVelocity();
+            frame.putDouble(r.x()).putDouble(r.y()).putDouble(r.z())
+                    .putDouble(v.x()).putDouble(v.y()).putDouble(v.z());
+        }
+
+        frame.flip();
+        drain(frame);
+    }
+
+    /**
+     * Append a frame from a snapshot
+     *
+     * @param step  the step index
+     * @param state x y z vx vy vz of every particle
+     * @throws IOException if the frame cannot be written
+     */
+    @Override
+    public void write(final long step, final double[] state) throws IOException {
+        check(state.length / Trajectory.VALUES_PER_PARTICLE);
+        frame.clear();
+        frame.putLong(step);
+        frame.asDoubleBuffer().put(state, 0, Trajectory.VALUES_PER_PARTICLE * n);
+        frame.position(frame.capacity());
+
+        frame.flip();
+        drain(frame);
+    }
+
+    private void check(final int size) {
+        if (size != n) {
+            throw new IllegalArgumentException("Expected %d particles, got %d".formatted(n, size));
+        }
+    }
+
+    private void drain(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (channel instanceof FileChannel file) {
+            file.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
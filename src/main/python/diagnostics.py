@@ -0,0 +1,62 @@
+from dataclasses import dataclass
+from functools import cache
+import os
+
+import numpy as np
+
+import resources
+
+HEADER_BYTES = 32
+MAGIC = b'TP4D'
+
+DTYPE = np.dtype([
+    ('step', '<i8'),
+    ('kinetic', '<f8'),
+    ('potential', '<f8'),
+    ('com', '<f8', (3,)),
+    ('hmr', '<f8'),
+])
+
+@dataclass(frozen=True)
+class Header:
+    n: int
+    dt: float
+    interval: int
+
+def available(name: str = 'diagnostics.bin'):
+    """
+    Whether the Java run saved its diagnostics series.
+    """
+    return os.path.exists(resources.path(name))
+
+def header(name: str = 'diagnostics.bin'):
+    """
+    Reads the header of a diagnostics file.
+
+    See org.sims.galaxy.Diagnostics for the layout.
+    """
+    path = resources.path(name)
+    with open(path, 'rb') as f:
+        raw = f.read(HEADER_BYTES)
+
+    if raw[:4] != MAGIC:
+        raise ValueError(f"Not a diagnostics file: {path}")
+
+    version, n = np.frombuffer(raw, dtype='<i4', count=2, offset=4)
+    if version != 1:
+        raise ValueError(f"Unsupported diagnostics version {version} in {path}")
+
+    dt = float(np.frombuffer(raw, dtype='<f8', count=1, offset=16)[0])
+    interval = int(np.frombuffer(raw, dtype='<i8', count=1, offset=24)[0])
+
+    return Header(int(n), dt, interval)
+
+@cache
+def series(name: str = 'diagnostics.bin'):
+    """
+    Reads every record of a diagnostics file.
+
+    Each record has the 'step' index, the 'kinetic' and 'potential'
+    energies, the center of mass 'com' and the half-mass radius 'hmr'.
+    """
+    return np.fromfile(resources.path(name), dtype=DTYPE, offset=HEADER_BYTES)
@@ -5,11 +5,25 @@ import pandas as pd
 
 from classes.particle import Particle
 import resources
+import trajectory
+
+def binary(dir: str = 'steps'):
+    """
+    Whether the frames of dir come from a binary trajectory.
+
+    The Java side writes either sim/<dir>/*.txt or sim/<dir>.bin,
+    and clears the text frames on every run.
+    """
+    text = resources.path(dir)
+    return os.path.exists(resources.path(f"{dir}.bin")) and (not os.path.isdir(text) or not os.listdir(text))
 
 def next(f: int, dir: str = 'steps'):
     """
     Reads the input file for a given frame.
     """
+    if binary(dir):
+        return f, [Particle(*d) for d in trajectory.frames(f"{dir}.bin")[f]['state'].tolist()]
+
     file_path = resources.path(dir, f"{f}.txt")
     df = pd.read_csv(file_path, header=None, delimiter=' ').astype("float") # type: ignore[reportUnknownMemberType]
     return f, [Particle(*d) for _, d in df.iterrows()]
@@ -19,4 +33,7 @@ def count(dir: str = 'steps'):
     """
     Returns the number of animations steps.
     """
+    if binary(dir):
+        return len(trajectory.frames(f"{dir}.bin"))
+
     return len(os.listdir(resources.path(dir)))
@@ -14,6 +14,7 @@ import numpy as np
 
 from tqdm import tqdm
 
+import diagnostics
 import ener
 import frames
 import resources
@@ -45,6 +46,11 @@ def main(cache_key: str | None = None):
         folder = resources.path('cache-galapy')
         kin = np.load(resources.path(folder, f"{cache_key}-kin.npy"))
         pot = np.load(resources.path(folder, f"{cache_key}-pot.npy"))
+    elif diagnostics.available():
+        series = diagnostics.series()
+        kin = series['kinetic']
+        pot = series['potential']
+        return kin, pot, kin + pot, series['step'] * dt, dt, integral, diagnostics.header().n
     else:
         executor = Executor(frames.next, range(frames.count()))
 
@@ -10,6 +10,7 @@ import sys
 
 import time
 
+import diagnostics
 import ener
 import frames
 import resources
@@ -22,9 +23,14 @@ def main(cache_key: str | None = None):
         dt = float(line[1])
         integral = line[-1]
 
+    times = None
     if cache_key:
         folder = resources.path('cache-hmr')
         hmr = np.load(resources.path(folder, f"{cache_key}.npy"))
+    elif diagnostics.available():
+        records = diagnostics.series()
+        hmr = records['hmr']
+        times = records['step'] * dt
     else:
         executor = Executor(frames.next, range(frames.count()))
 
@@ -33,13 +39,21 @@ def main(cache_key: str | None = None):
             hmr = np.append(hmr, ener.half_mass_radius(particles))
 
     tstar = None
-    for i in range(1, len(hmr) - 2):
-        if hmr[i - 1] <= 1 and hmr[i + 1] > 1:
-            if i > 0:
-                tstar = (i - 1) * 10
-            break
+    if times is not None:
+        # Same as the Java HalfMassRadiusStop: the first record above 1 after one at or below it
+        above = np.nonzero((hmr[:-1] <= 1) & (hmr[1:] > 1))[0]
+        if len(above) > 0:
+            tstar = float(times[above[0] + 1])
+    else:
+        for i in range(1, len(hmr) - 2):
+            if hmr[i - 1] <= 1 and hmr[i + 1] > 1:
+                if i > 0:
+                    tstar = (i - 1) * 10
+                break
+
+        times = np.linspace(0, steps * dt, len(hmr))
 
-    return hmr, tstar, np.linspace(0, steps * dt, frames.count()), integral, dt, len(frames.next(0)[1])
+    return hmr, tstar, times, integral, dt, len(frames.next(0)[1])
 
 if __name__ == "__main__":
     cache_key = next(filter(lambda x: x.startswith("--cache="), sys.argv), None)
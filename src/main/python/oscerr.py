@@ -1,15 +1,22 @@
 import os
 
+import sys
+
 import matplotlib.pyplot as plt
 
 import resources
 
-def main():
+def main(folder: str = "osc-error"):
+    """
+    Reads the errors of oscillate.py, or of MainOscillator --ensemble
+    from "osc-error-ensemble". Both use different error definitions,
+    so they are never mixed.
+    """
     values: dict[str, tuple[list[float], list[float]]] = {}
 
-    errors = resources.path("osc-error")
+    errors = resources.path(folder)
     for integral in os.listdir(errors):
-        integral_path = resources.path("osc-error", integral)
+        integral_path = resources.path(folder, integral)
 
         for filename in os.listdir(integral_path):
             dt_path = os.path.join(integral_path, filename)
@@ -26,7 +33,7 @@ def main():
     return values
 
 if __name__ == "__main__":
-    values = main()
+    values = main("osc-error-ensemble" if "--ensemble" in sys.argv else "osc-error")
 
     for integral, (dts, errs) in values.items():
         sorted_pairs = sorted(zip(dts, errs))
@@ -0,0 +1,85 @@
+import socket
+import sys
+import time
+from typing import BinaryIO
+
+import numpy as np
+
+import resources
+import trajectory
+
+def connect(name: str = 'steps.sock', timeout: float = 30):
+    """
+    Opens the live stream of a run with "output": "socket" or "pipe".
+
+    Waits up to timeout seconds for the simulation to create the socket.
+    A named pipe must be created beforehand with mkfifo.
+    """
+    path = resources.path(name)
+
+    if name.endswith('.pipe'):
+        return open(path, 'rb', buffering=0)
+
+    deadline = time.monotonic() + timeout
+    while True:
+        try:
+            s = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+            s.connect(path)
+            return s.makefile('rb', buffering=0)
+        except (FileNotFoundError, ConnectionRefusedError):
+            s.close()
+            if time.monotonic() > deadline:
+                raise
+            time.sleep(0.1)
+
+def read_into(stream: BinaryIO, view: memoryview):
+    """
+    Fills view from the stream.
+
+    :return: False if the stream ended before the first byte.
+    """
+    read = 0
+    while read < len(view):
+        count = stream.readinto(view[read:])
+        if not count:
+            if read == 0:
+                return False
+            raise EOFError(f"Stream ended mid frame, {read}/{len(view)} bytes")
+        read += count
+    return True
+
+def frames(name: str = 'steps.sock'):
+    """
+    Yields (header, step, state) for every frame, as the simulation sends it.
+
+    The stream has the layout of a binary trajectory, see trajectory.py,
+    so every frame is received into the same buffer and viewed with
+    numpy.frombuffer, no parsing involved.
+
+    state is an (N, 6) array of x y z vx vy vz per particle. It is a view
+    of the receive buffer, so it changes with the next frame, copy it to keep it.
+    """
+    with connect(name) as stream:
+        raw = bytearray(trajectory.HEADER_BYTES)
+        if not read_into(stream, memoryview(raw)):
+            return
+        header = trajectory.parse_header(bytes(raw), name)
+
+        frame = bytearray(8 + 48 * header.n)
+        view = memoryview(frame)
+        step = np.frombuffer(frame, dtype='<i8', count=1)
+        state = np.frombuffer(frame, dtype='<f8', offset=8).reshape(header.n, 6)
+
+        while read_into(stream, view):
+            yield header, int(step[0]), state
+
+if __name__ == "__main__":
+    name = 'steps.pipe' if 'pipe' in sys.argv else 'steps.sock'
+
+    for header, step, state in frames(name):
+        positions = state[:, :3]
+        center = positions.mean(axis=0)
+        hmr = np.median(np.linalg.norm(positions - center, axis=1))
+        print(f"t={step * header.dt:.4f} center=({center[0]:.4f}, {center[1]:.4f}, {center[2]:.4f}) hmr={hmr:.4f}", flush=True)
+
+    print("Stream ended", file=sys.stderr)
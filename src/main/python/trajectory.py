@@ -0,0 +1,62 @@
+from dataclasses import dataclass
+from functools import cache
+
+import numpy as np
+
+import resources
+
+HEADER_BYTES = 128
+NAME_OFFSET = 32
+MAGIC = b'TP4T'
+COMPRESSED_MAGIC = b'TP4Z'
+
+@dataclass(frozen=True)
+class Header:
+    n: int
+    dt: float
+    interval: int
+    integrator: str
+
+def header(path: str):
+    """
+    Reads the header of a binary trajectory file.
+
+    See org.sims.trajectory.Trajectory for the layout.
+    """
+    with open(path, 'rb') as f:
+        raw = f.read(HEADER_BYTES)
+
+    return parse_header(raw, path)
+
+def parse_header(raw: bytes, source: str):
+    """
+    Parses the first HEADER_BYTES of a trajectory, from a file or a stream.
+    """
+    if raw[:4] == COMPRESSED_MAGIC:
+        raise ValueError(f"Compressed trajectory: {source}, "
+                         "expand it with MainTrajectory decompress <steps.tp4z> <steps.bin>")
+    if len(raw) < HEADER_BYTES or raw[:4] != MAGIC:
+        raise ValueError(f"Not a trajectory: {source}")
+
+    version, n, name_length = np.frombuffer(raw, dtype='<i4', count=3, offset=4)
+    if version != 1:
+        raise ValueError(f"Unsupported trajectory version {version} in {source}")
+
+    dt = float(np.frombuffer(raw, dtype='<f8', count=1, offset=16)[0])
+    interval = int(np.frombuffer(raw, dtype='<i8', count=1, offset=24)[0])
+    integrator = raw[NAME_OFFSET:NAME_OFFSET + int(name_length)].decode('utf-8')
+
+    return Header(int(n), dt, interval, integrator)
+
+@cache
+def frames(name: str = 'steps.bin'):
+    """
+    Memory-maps every frame of a trajectory.
+
+    Each record has a 'step' index and a 'state' array
+    of shape (N, 6), with x y z vx vy vz per particle.
+    """
+    path = resources.path(name)
+    n = header(path).n
+    dtype = np.dtype([('step', '<i8'), ('state', '<f8', (n, 6))])
+    return np.memmap(path, dtype=dtype, mode='r', offset=HEADER_BYTES)